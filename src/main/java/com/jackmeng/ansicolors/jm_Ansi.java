@@ -1235,8 +1235,12 @@ public final class jm_Ansi
 
         public _ansi make(int... codes)
         {
+            StringBuilder sb = instance.$ansi_content;
             for (int r : codes)
-                make(r + "");
+                if (r >= 0 && r < 256)
+                    use_Sgr.param(r, sb, true);
+                else
+                    sb.append(r).append(';');
             return this;
         }
 
@@ -1250,11 +1254,8 @@ public final class jm_Ansi
             r = use_Help.clamp(0, 255, r); // RED | R
             g = use_Help.clamp(0, 255, g); // GREEN | G
             b = use_Help.clamp(0, 255, b); // BLUE | B
-            fg();
-            make("2");
-            make(r);
-            make(g);
-            make(b);
+            use_Sgr.truecolor(r << 16 | g << 8 | b, false, instance.$ansi_content);
+            instance.$ansi_content.append(';');
             return this;
         }
 
@@ -1268,11 +1269,8 @@ public final class jm_Ansi
             r = use_Help.clamp(0, 255, r); // RED | R
             g = use_Help.clamp(0, 255, g); // GREEN | G
             b = use_Help.clamp(0, 255, b); // BLUE | B
-            bg();
-            make("2");
-            make(r);
-            make(g);
-            make(b);
+            use_Sgr.truecolor(r << 16 | g << 8 | b, true, instance.$ansi_content);
+            instance.$ansi_content.append(';');
             return this;
         }
 
@@ -1289,6 +1287,78 @@ public final class jm_Ansi
             return make(i);
         }
 
+        /**
+         * Captures the formatting applied so far (not the content) as a
+         * precompiled style that can be kept around and reused.
+         * <p>
+         * <strong>[!] This method destroys cascading! [!]</strong>
+         * </p>
+         *
+         * @return The formatting as a {@link jm_AnsiStyle}
+         * @since 1.2
+         */
+        public jm_AnsiStyle style()
+        {
+            CharSequence codes = codes();
+            int[] p = new int[codes.length() / 2 + 1];
+            int n = 0, v = 0;
+            boolean digits = false, negative = false;
+            for (int i = 0; i <= codes.length(); i++)
+            {
+                char c = i == codes.length() ? ';' : codes.charAt(i);
+                if (c >= '0' && c <= '9')
+                {
+                    v = Math.min(0xFFFF, v * 10 + c - '0');
+                    digits = true;
+                }
+                else if (c == '-')
+                    negative = true;
+                else
+                {
+                    if (digits && !negative) // negative codes from make(int...) mean nothing to a style
+                        p[n++] = v;
+                    v = 0;
+                    digits = negative = false;
+                }
+            }
+            return n == 0 ? jm_AnsiStyle.NONE : jm_AnsiStyle.of_packed(use_Sgr.apply(0L, p, n));
+        }
+
+        /**
+         * The codes given so far as {@link #toString()} writes them between
+         * {@code ESC[} and {@code m}, whether or not {@link #end()} was already
+         * called
+         */
+        CharSequence codes()
+        {
+            StringBuilder c = instance.$ansi_content;
+            int n = 0;
+            while (n < c.length() && c.charAt(n) != 'm') // end() leaves an m and the content behind
+                n++;
+            if (n > 0 && c.charAt(n - 1) == ';')
+                n--;
+            return c.subSequence(0, n);
+        }
+
+        /**
+         * Defers all rendering until the result is actually used, for arguments
+         * to log calls that are usually filtered out:
+         *
+         * <pre>
+         * log.debug("got {}", jm_Ansi.make(x).red().lazy());
+         * </pre>
+         *
+         * The builder is read when rendering, so it should not be changed after
+         * this.
+         *
+         * @return The lazy value
+         * @since 1.2
+         */
+        public jm_AnsiLazy lazy()
+        {
+            return jm_AnsiLazy.of(this);
+        }
+
         // ########### END MISC ########### //
 
         /**
@@ -1327,7 +1397,12 @@ public final class jm_Ansi
          */
         public String toString(String content)
         {
-            return jm_Ansi.use_ansi() ? "\033[" + end().append("m").append(this.content.append(content)).append(jm_Ansi.reset()).toString() : content;
+            if (!jm_Ansi.use_ansi())
+                return content;
+            String r = "\033[" + end().append("m").append(this.content.append(content)).append(jm_Ansi.reset()).toString();
+            if (jm_AnsiMetrics.on)
+                jm_AnsiMetrics.rendered(r.length() - this.content.length(), this.content.length());
+            return r;
         }
 
         /**
@@ -0,0 +1,197 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * <h2>jm_AnsiBatch - Parallel rendering of many styled rows</h2>
+ * <p>
+ * Renders a large number of (style, content) rows straight to UTF-8 bytes.
+ * Rows are cut into chunks, the chunks are rendered in parallel on a
+ * {@link ForkJoinPool} into their own reused buffers and the buffers are
+ * written to the channel in the original order, so the output is byte for byte
+ * what rendering the rows one after another would give.
+ * </p>
+ * <p>
+ * Each row is written as {@code style + content + RESET + separator}, the same
+ * as {@link jm_Ansi._ansi#toString()} followed by the separator. With
+ * {@link jm_Ansi#use_ansi()} off only the content and separator are written.
+ * </p>
+ *
+ * <pre>
+ * jm_AnsiBatch.make().write(orders, o -> o.late() ? LATE : ON_TIME, Order::describe, Channels.newChannel(System.out));
+ * </pre>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiBatch
+{
+    private static final byte[] RESET = "\033[0m".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @return A batch renderer with 4096 rows per chunk on the common pool and
+     *         {@code \n} between rows
+     */
+    public static jm_AnsiBatch make()
+    {
+        return new jm_AnsiBatch();
+    }
+
+    private int chunk = 4096;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private byte[] separator = { '\n' };
+
+    private jm_AnsiBatch()
+    {
+    }
+
+    /**
+     * @param rows
+     *          Rows rendered by one task, at least 1
+     * @return Instance for cascading
+     */
+    public jm_AnsiBatch chunk(int rows)
+    {
+        this.chunk = Math.max(1, rows);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiBatch pool(ForkJoinPool pool)
+    {
+        this.pool = Objects.requireNonNull(pool);
+        return this;
+    }
+
+    /**
+     * @param separator
+     *          Written after every row, can be empty
+     * @return Instance for cascading
+     */
+    public jm_AnsiBatch separator(String separator)
+    {
+        this.separator = separator.getBytes(StandardCharsets.UTF_8);
+        return this;
+    }
+
+    /**
+     * Renders already built {@link jm_Ansi._ansi} rows, each one's codes are
+     * encoded once as they are, so codes no {@link jm_AnsiStyle} knows about
+     * (underline colors, fonts ...) come out the same as from
+     * {@link jm_Ansi._ansi#toString()}
+     *
+     * @return number of bytes written
+     */
+    public long write(List<jm_Ansi._ansi> rows, WritableByteChannel out) throws IOException
+    {
+        List<byte[]> sgrs = new ArrayList<>(rows.size());
+        for (jm_Ansi._ansi r : rows)
+        {
+            CharSequence codes = r.codes();
+            sgrs.add(codes.length() == 0 ? null : ("\033[" + codes + "m").getBytes(StandardCharsets.US_ASCII));
+        }
+        return write(rows.size(), sgrs::get, i -> rows.get(i).content(), out);
+    }
+
+    /**
+     * @param style
+     *          Style of a row, {@link jm_AnsiStyle#NONE} for plain
+     * @param content
+     *          Text of a row, called from worker threads
+     * @return number of bytes written
+     */
+    public <T> long write(List<? extends T> rows, Function<? super T, jm_AnsiStyle> style,
+            Function<? super T, ? extends CharSequence> content, WritableByteChannel out) throws IOException
+    {
+        return write(rows.size(), i -> sgr(style.apply(rows.get(i))), i -> content.apply(rows.get(i)), out);
+    }
+
+    /**
+     * Same as {@link #write(List, Function, Function, WritableByteChannel)}, the
+     * stream is read on the calling thread only as far as the next round of
+     * chunks needs so it does not have to fit in memory
+     */
+    public <T> long write(Stream<? extends T> rows, Function<? super T, jm_AnsiStyle> style,
+            Function<? super T, ? extends CharSequence> content, WritableByteChannel out) throws IOException
+    {
+        int round = round();
+        List<T> buf = new ArrayList<>(round);
+        long written = 0;
+        for (Iterator<? extends T> it = rows.iterator(); it.hasNext();)
+        {
+            buf.clear();
+            while (buf.size() < round && it.hasNext())
+                buf.add(it.next());
+            written += write(buf, style, content, out);
+        }
+        return written;
+    }
+
+    /**
+     * Rows per round, enough chunks for every worker to take a couple
+     */
+    private int round()
+    {
+        return (int) Math.min(Integer.MAX_VALUE, (long) chunk * pool.getParallelism() * 2);
+    }
+
+    /**
+     * @return The bytes opening a row, null for none
+     */
+    private static byte[] sgr(jm_AnsiStyle style)
+    {
+        return style == jm_AnsiStyle.NONE ? null : style.sgr_bytes();
+    }
+
+    /**
+     * @param sgr
+     *          Bytes opening each row, null for a plain row
+     */
+    private long write(int rows, IntFunction<byte[]> sgr, IntFunction<? extends CharSequence> content,
+            WritableByteChannel out) throws IOException
+    {
+        final boolean color = jm_Ansi.use_ansi();
+        final int chunk = this.chunk, round = round();
+        final byte[] sep = separator;
+        int slots = (Math.min(rows, round) + chunk - 1) / chunk;
+        use_Bytes[] bufs = new use_Bytes[slots];
+        ByteBuffer[] views = new ByteBuffer[slots];
+        long written = 0;
+        for (int base = 0; base < rows; base += round)
+        {
+            final int from = base, to = (int) Math.min(rows, (long) base + round), n = (to - from + chunk - 1) / chunk;
+            use_Parallel.each(pool, n, k -> {
+                use_Bytes b = bufs[k] == null ? (bufs[k] = new use_Bytes(Math.min(chunk, 1 << 16) * 32)) : bufs[k].clear();
+                for (int i = from + k * chunk, end = Math.min(to, i + chunk); i < end; i++)
+                {
+                    byte[] s = color ? sgr.apply(i) : null;
+                    boolean styled = s != null;
+                    if (styled)
+                        b.put(s);
+                    b.utf8(content.apply(i));
+                    if (styled)
+                        b.put(RESET);
+                    b.put(sep);
+                }
+                views[k] = ByteBuffer.wrap(b.a, 0, b.n);
+            });
+            written += use_Parallel.write_all(out, n == slots ? views : Arrays.copyOf(views, n));
+        }
+        return written;
+    }
+}
@@ -0,0 +1,477 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h2>jm_AnsiCast - Recording and replaying sessions</h2>
+ * <p>
+ * Records whatever is written to a stream as an
+ * <a href="https://docs.asciinema.org/manual/asciicast/v2/">asciicast v2</a>
+ * file that {@code asciinema play} (or {@link #player()}) can replay with its
+ * original timing:
+ *
+ * <pre>
+ * OutputStream cast = jm_AnsiCast.recorder(Paths.get("session.cast"), 120, 40, "deploy");
+ * System.setOut(new PrintStream(jm_AnsiFilterStream.tee(System.out, cast), true, "UTF-8"));
+ * ...
+ * jm_AnsiCast.player().speed(2).play(Paths.get("session.cast"), System.out);
+ * </pre>
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiCast
+{
+    private jm_AnsiCast()
+    {
+    }
+
+    /**
+     * @param cols
+     *          Terminal width written to the header
+     * @param rows
+     *          Terminal height written to the header
+     * @param title
+     *          {@code null} for none
+     * @return A recorder writing to a new (or truncated) file
+     */
+    public static _recorder recorder(Path file, int cols, int rows, String title) throws IOException
+    {
+        return new _recorder(Files.newOutputStream(file), cols, rows, title);
+    }
+
+    /**
+     * @param out
+     *          Where the cast goes, closed with the recorder
+     */
+    public static _recorder recorder(OutputStream out, int cols, int rows, String title)
+    {
+        return new _recorder(Objects.requireNonNull(out), cols, rows, title);
+    }
+
+    /**
+     * @return A player at normal speed that shortens pauses to 2 seconds
+     */
+    public static _player player()
+    {
+        return new _player();
+    }
+
+    /**
+     * <h2>_recorder - A stream turning writes into timed events</h2>
+     * <p>
+     * Every write becomes (part of) an output event stamped with the time since
+     * the recorder was made. Writes closer together than
+     * {@link #merge(long, TimeUnit)} (1 ms by default) share an event. Bytes are
+     * escaped for JSON straight into a reused buffer and a UTF-8 character split
+     * between two writes is held back until it is complete, so recording
+     * allocates nothing per write.
+     * </p>
+     * <p>
+     * The cast is handed to the underlying stream once 32 KB are pending, when
+     * a flush comes at least a second after the last one and when closing.
+     * Flushing more often than that (like a {@link PrintStream} with automatic
+     * flushing) does not cost a write each time.
+     * </p>
+     * Writes are synchronized, the recorder can be shared between threads.
+     *
+     * @author Jack Meng
+     */
+    public static final class _recorder extends OutputStream
+    {
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        private static final int PENDING_MAX = 32 << 10;
+        private static final long DISK_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+        private final OutputStream out;
+        private final long start = System.nanoTime();
+        private final use_Bytes cast = new use_Bytes(PENDING_MAX + 1024);
+        private final byte[] partial = new byte[4];
+        private int partial_n;
+        private long merge = TimeUnit.MILLISECONDS.toNanos(1), event_at = -1L, disk_at = start;
+        private boolean open_event, closed;
+
+        private _recorder(OutputStream out, int cols, int rows, String title)
+        {
+            this.out = out;
+            cast.utf8("{\"version\": 2, \"width\": ").decimal(cols).utf8(", \"height\": ").decimal(rows)
+                    .utf8(", \"timestamp\": ").decimal(System.currentTimeMillis() / 1000);
+            if (title != null)
+            {
+                cast.utf8(", \"title\": \"");
+                byte[] t = title.getBytes(StandardCharsets.UTF_8);
+                json(t, 0, t.length);
+                cast.ascii('"');
+            }
+            cast.utf8("}\n");
+        }
+
+        /**
+         * @return Instance for cascading
+         */
+        public synchronized _recorder merge(long window, TimeUnit unit)
+        {
+            merge = Math.max(0L, unit.toNanos(window));
+            return this;
+        }
+
+        @Override public synchronized void write(int b) throws IOException
+        {
+            event();
+            byte c = (byte) b;
+            if (partial_n > 0 && partial_n < need(partial[0]) && (c & 0xC0) == 0x80)
+            {
+                partial[partial_n++] = c; // goes on with the held back character
+                if (partial_n < need(partial[0]))
+                    return;
+                json(partial, 0, partial_n);
+                partial_n = 0;
+            }
+            else
+            {
+                if (partial_n > 0)
+                {
+                    json(partial, 0, partial_n);
+                    partial_n = 0;
+                }
+                if (need(c) > 1)
+                {
+                    partial[partial_n++] = c;
+                    return;
+                }
+                json(c);
+            }
+            if (cast.n >= PENDING_MAX)
+                drain();
+        }
+
+        @Override public synchronized void write(byte[] b, int off, int len) throws IOException
+        {
+            if (closed)
+                throw new IOException("Recorder closed");
+            if (len <= 0)
+                return;
+            event();
+            int end = off + len;
+            if (partial_n > 0) // finish the character the last write ended in
+            {
+                while (off < end && partial_n < need(partial[0]) && (b[off] & 0xC0) == 0x80)
+                    partial[partial_n++] = b[off++];
+                if (partial_n == need(partial[0]) || off < end)
+                {
+                    json(partial, 0, partial_n);
+                    partial_n = 0;
+                }
+            }
+            int cut = end; // hold back an incomplete character at the end
+            for (int i = end - 1; i >= off && i >= end - 3; i--)
+                if ((b[i] & 0xC0) != 0x80)
+                {
+                    if (need(b[i]) > end - i)
+                        cut = i;
+                    break;
+                }
+            json(b, off, cut);
+            for (int i = cut; i < end; i++)
+                partial[partial_n++] = b[i];
+            if (cast.n >= PENDING_MAX)
+                drain();
+        }
+
+        @Override public synchronized void flush() throws IOException
+        {
+            if (System.nanoTime() - disk_at >= DISK_INTERVAL)
+            {
+                end_event();
+                drain();
+                out.flush();
+            }
+        }
+
+        @Override public synchronized void close() throws IOException
+        {
+            if (closed)
+                return;
+            if (partial_n > 0)
+            {
+                json(partial, 0, partial_n);
+                partial_n = 0;
+            }
+            end_event();
+            drain();
+            closed = true;
+            out.close();
+        }
+
+        /**
+         * Opens an output event for a write unless the current one is recent
+         * enough to take it
+         */
+        private void event() throws IOException
+        {
+            if (closed)
+                throw new IOException("Recorder closed");
+            long now = System.nanoTime() - start;
+            if (!open_event || now - event_at > merge)
+            {
+                end_event();
+                event_at = now;
+                cast.ascii('[').decimal(now / 1_000_000_000L).ascii('.');
+                long micros = now / 1000 % 1_000_000;
+                for (long d = 100_000; d > 0; d /= 10)
+                    cast.ascii((char) ('0' + micros / d % 10));
+                cast.utf8(", \"o\", \"");
+                open_event = true;
+            }
+        }
+
+        private void end_event()
+        {
+            if (open_event)
+            {
+                cast.utf8("\"]\n");
+                open_event = false;
+            }
+        }
+
+        private void drain() throws IOException
+        {
+            if (cast.n > 0)
+            {
+                try
+                {
+                    cast.write_to(out);
+                } catch (UncheckedIOException e)
+                {
+                    throw e.getCause();
+                }
+                cast.clear();
+            }
+            disk_at = System.nanoTime();
+        }
+
+        /**
+         * @return Bytes in the UTF-8 character starting with {@code lead}
+         */
+        private static int need(byte lead)
+        {
+            int b = lead & 0xFF;
+            return b < 0xC0 ? 1 : b < 0xE0 ? 2 : b < 0xF0 ? 3 : 4;
+        }
+
+        /**
+         * Escapes {@code [from, to)} into a JSON string body, UTF-8 passes through
+         */
+        private void json(byte[] b, int from, int to)
+        {
+            cast.room(to - from);
+            for (int i = from; i < to; i++)
+                json(b[i]);
+        }
+
+        private void json(byte c)
+        {
+            if (c == '"' || c == '\\')
+                cast.ascii('\\').put(c);
+            else if (c == '\n')
+                cast.ascii('\\').ascii('n');
+            else if (c == '\r')
+                cast.ascii('\\').ascii('r');
+            else if (c == '\t')
+                cast.ascii('\\').ascii('t');
+            else if (c >= 0 && c < 0x20 || c == 0x7F)
+                cast.utf8("\\u00").put(HEX[c >> 4]).put(HEX[c & 0xF]);
+            else
+                cast.put(c);
+        }
+    }
+
+    /**
+     * <h2>_player - Replays a cast with its timing</h2>
+     * <p>
+     * Writes each output event when it is due, measured from when playing
+     * started so that waiting and writing do not add up over a long cast. Input
+     * and other event kinds are skipped.
+     * </p>
+     *
+     * @author Jack Meng
+     */
+    public static final class _player
+    {
+        private double speed = 1D, max_idle = 2D;
+
+        private _player()
+        {
+        }
+
+        /**
+         * @param speed
+         *          2 plays twice as fast
+         * @return Instance for cascading
+         */
+        public _player speed(double speed)
+        {
+            if (!(speed > 0))
+                throw new IllegalArgumentException("Speed: " + speed);
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * @param seconds
+         *          Longest pause kept (before speeding up),
+         *          {@link Double#POSITIVE_INFINITY} to keep all
+         * @return Instance for cascading
+         */
+        public _player max_idle(double seconds)
+        {
+            this.max_idle = seconds;
+            return this;
+        }
+
+        /**
+         * @return Output events played
+         */
+        public long play(Path file, PrintStream out) throws IOException
+        {
+            try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+            {
+                return play(r, out);
+            }
+        }
+
+        /**
+         * @return Output events played
+         * @throws IOException
+         *           if reading fails or the cast is not asciicast v2
+         */
+        public long play(Reader cast, PrintStream out) throws IOException
+        {
+            BufferedReader in = cast instanceof BufferedReader ? (BufferedReader) cast : new BufferedReader(cast);
+            String header = in.readLine();
+            if (header == null || !header.replace(" ", "").contains("\"version\":2"))
+                throw new IOException("Not an asciicast v2 file");
+            long begin = System.nanoTime(), events = 0;
+            double last = 0, shift = 0; // seconds of idle time cut so far
+            StringBuilder data = new StringBuilder(256);
+            for (String line; (line = in.readLine()) != null;)
+            {
+                int[] at = { 0 };
+                if (!skip(line, at, '['))
+                    continue;
+                double t = number(line, at);
+                if (!skip(line, at, ',') || !skip(line, at, '"'))
+                    continue;
+                boolean output = line.startsWith("o\"", at[0]);
+                at[0] = line.indexOf('"', at[0]) + 1;
+                if (!output || !skip(line, at, ',') || !skip(line, at, '"'))
+                    continue;
+                data.setLength(0);
+                string(line, at, data);
+                if (t - last > max_idle)
+                    shift += t - last - max_idle;
+                last = t;
+                long due = begin + (long) ((t - shift) / speed * 1e9);
+                for (long wait; (wait = due - System.nanoTime()) > 0;)
+                    LockSupport.parkNanos(wait);
+                out.print(data);
+                out.flush();
+                events++;
+            }
+            return events;
+        }
+
+        private static boolean skip(String s, int[] at, char c)
+        {
+            int i = at[0];
+            while (i < s.length() && s.charAt(i) == ' ')
+                i++;
+            if (i >= s.length() || s.charAt(i) != c)
+                return false;
+            at[0] = i + 1;
+            return true;
+        }
+
+        private static double number(String s, int[] at) throws IOException
+        {
+            int i = at[0];
+            while (i < s.length() && s.charAt(i) == ' ')
+                i++;
+            int from = i;
+            while (i < s.length() && "0123456789.eE+-".indexOf(s.charAt(i)) >= 0)
+                i++;
+            at[0] = i;
+            try
+            {
+                return Double.parseDouble(s.substring(from, i));
+            } catch (NumberFormatException e)
+            {
+                throw new IOException("Bad event time: " + s, e);
+            }
+        }
+
+        /**
+         * Unescapes a JSON string body up to its closing quote
+         */
+        private static void string(String s, int[] at, StringBuilder out) throws IOException
+        {
+            for (int i = at[0]; i < s.length(); i++)
+            {
+                char c = s.charAt(i);
+                if (c == '"')
+                {
+                    at[0] = i + 1;
+                    return;
+                }
+                if (c != '\\')
+                {
+                    out.append(c);
+                    continue;
+                }
+                if (++i >= s.length())
+                    break;
+                switch (s.charAt(i))
+                {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'b':
+                        out.append('\b');
+                        break;
+                    case 'f':
+                        out.append('\f');
+                        break;
+                    case 'u':
+                        if (i + 4 >= s.length())
+                            throw new IOException("Bad escape: " + s);
+                        out.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    default: // \" \\ \/
+                        out.append(s.charAt(i));
+                        break;
+                }
+            }
+            throw new IOException("Unterminated string: " + s);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+/**
+ * <h2>jm_AnsiChart - Sparklines, bars and heatmaps</h2>
+ * <p>
+ * Small charts for numbers in a terminal, colored along a ramp (green through
+ * yellow to red unless set otherwise):
+ *
+ * <pre>
+ * static final jm_AnsiChart CHART = jm_AnsiChart.make();
+ * ...
+ * StringBuilder sb = new StringBuilder();
+ * CHART.sparkline(latencies, sb).append('\n');
+ * CHART.bars(new String[] { "p50", "p99" }, new double[] { p50, p99 }, 40, sb);
+ * CHART.heatmap(per_minute, 60, sb);
+ * </pre>
+ * </p>
+ * <p>
+ * The ramp is turned into a fixed number of steps with their escape codes once,
+ * when it is set. Drawing only looks up steps and writes a code when the step
+ * changes from the cell before it, runs of equal colors cost one code. Charts
+ * are appended to the caller's buffer and end in the default style. Without
+ * {@link jm_Ansi#use_ansi()} only the glyphs are written.
+ * </p>
+ * <p>
+ * Values are scaled between the smallest and largest value of the series
+ * unless {@link #range(double, double)} says otherwise, bars always start at
+ * zero. {@code NaN} is drawn as a blank cell.
+ * </p>
+ * Configure once, then draw from as many threads as needed.
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiChart
+{
+    /**
+     * @return A chart with 32 steps from green through yellow to red in
+     *         truecolor
+     */
+    public static jm_AnsiChart make()
+    {
+        return new jm_AnsiChart();
+    }
+
+    private static final char[] SPARKS = { '\u2581', '\u2582', '\u2583', '\u2584', '\u2585', '\u2586', '\u2587',
+            '\u2588' };
+
+    /**
+     * Left one eighth through seven eighths, index 0 is unused
+     */
+    private static final char[] EIGHTHS = { ' ', '\u258F', '\u258E', '\u258D', '\u258C', '\u258B', '\u258A',
+            '\u2589' };
+
+    private static final char FULL = '\u2588';
+
+    private int[] stops = { 0x2EB82E, 0xE6C619, 0xE0352B };
+    private int steps = 32, colors = 1 << 24;
+    private double lo = Double.NaN, hi = Double.NaN;
+    private volatile String[] ramp;
+
+    private jm_AnsiChart()
+    {
+        ramp = build();
+    }
+
+    /**
+     * @param rgb
+     *          Colors as {@code 0xRRGGBB} from the lowest to the highest value,
+     *          at least one
+     * @return Instance for cascading
+     */
+    public jm_AnsiChart ramp(int... rgb)
+    {
+        if (rgb.length == 0)
+            throw new IllegalArgumentException("A ramp needs at least one color");
+        stops = rgb.clone();
+        ramp = build();
+        return this;
+    }
+
+    /**
+     * @param steps
+     *          How many distinct colors the ramp is cut into, 2-256
+     * @return Instance for cascading
+     */
+    public jm_AnsiChart steps(int steps)
+    {
+        this.steps = use_Help.clamp(2, 256, steps);
+        ramp = build();
+        return this;
+    }
+
+    /**
+     * @param colors
+     *          16 or 256 to map the ramp to palette colors, anything above for
+     *          truecolor
+     * @return Instance for cascading
+     */
+    public jm_AnsiChart colors(int colors)
+    {
+        if (colors != 16 && colors != 256 && colors <= 256)
+            throw new IllegalArgumentException("Colors must be 16, 256 or truecolor, not " + colors);
+        this.colors = colors;
+        ramp = build();
+        return this;
+    }
+
+    /**
+     * Fixes the values that map to the ends of the ramp (and to the lowest and
+     * highest sparks), {@code NaN} for either end means the series' own
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiChart range(double lo, double hi)
+    {
+        this.lo = lo;
+        this.hi = hi;
+        return this;
+    }
+
+    private String[] build()
+    {
+        String[] r = new String[steps];
+        for (int i = 0; i < steps; i++)
+        {
+            double t = (double) i / (steps - 1) * (stops.length - 1);
+            int a = Math.min(stops.length - 1, (int) t), b = Math.min(stops.length - 1, a + 1);
+            double f = t - a;
+            int rgb = lerp(stops[a] >>> 16 & 0xFF, stops[b] >>> 16 & 0xFF, f) << 16
+                    | lerp(stops[a] >>> 8 & 0xFF, stops[b] >>> 8 & 0xFF, f) << 8
+                    | lerp(stops[a] & 0xFF, stops[b] & 0xFF, f);
+            r[i] = use_Sgr.sgr(use_Sgr.with_fg(0L, use_Sgr.downsample(use_Sgr.COLOR_RGB | rgb, colors)));
+        }
+        return r;
+    }
+
+    private static int lerp(int a, int b, double f)
+    {
+        return (int) Math.round(a + (b - a) * f);
+    }
+
+    // -------- sparklines --------
+
+    /**
+     * One character per value, eight heights
+     *
+     * @return {@code out}
+     */
+    public StringBuilder sparkline(double[] values, StringBuilder out)
+    {
+        return sparkline(values, null, values.length, out);
+    }
+
+    /**
+     * @return {@code out}
+     */
+    public StringBuilder sparkline(long[] values, StringBuilder out)
+    {
+        return sparkline(null, values, values.length, out);
+    }
+
+    public String sparkline(double[] values)
+    {
+        return sparkline(values, new StringBuilder(values.length * 4)).toString();
+    }
+
+    public String sparkline(long[] values)
+    {
+        return sparkline(values, new StringBuilder(values.length * 4)).toString();
+    }
+
+    private StringBuilder sparkline(double[] d, long[] l, int n, StringBuilder out)
+    {
+        double min = Double.isNaN(lo) ? min(d, l, n) : lo, max = Double.isNaN(hi) ? max(d, l, n) : hi;
+        _pen pen = new _pen(out);
+        for (int i = 0; i < n; i++)
+        {
+            double v = d != null ? d[i] : l[i];
+            if (Double.isNaN(v))
+            {
+                pen.blank();
+                continue;
+            }
+            double t = scale(v, min, max);
+            pen.draw(SPARKS[Math.min(7, (int) (t * 8))], t);
+        }
+        return pen.done();
+    }
+
+    // -------- bars --------
+
+    /**
+     * A single bar at eighth of a cell resolution, not followed by a line break
+     *
+     * @param max
+     *          The value of a bar {@code width} cells long
+     * @return {@code out}
+     */
+    public StringBuilder bar(double value, double max, int width, StringBuilder out)
+    {
+        _pen pen = new _pen(out);
+        bar(pen, value, 0, max, width);
+        return pen.done();
+    }
+
+    /**
+     * One bar per line, labels (if any) padded to the longest and the value
+     * printed after the bar
+     *
+     * @param labels
+     *          {@code null} for none
+     * @param width
+     *          Cells for the longest bar
+     * @return {@code out}
+     */
+    public StringBuilder bars(String[] labels, double[] values, int width, StringBuilder out)
+    {
+        return bars(labels, values, null, values.length, width, out);
+    }
+
+    /**
+     * @return {@code out}
+     */
+    public StringBuilder bars(String[] labels, long[] values, int width, StringBuilder out)
+    {
+        return bars(labels, null, values, values.length, width, out);
+    }
+
+    private StringBuilder bars(String[] labels, double[] d, long[] l, int n, int width, StringBuilder out)
+    {
+        if (labels != null && labels.length < n)
+            throw new IllegalArgumentException(labels.length + " labels for " + n + " values");
+        int pad = 0;
+        if (labels != null)
+            for (int i = 0; i < n; i++)
+                pad = Math.max(pad, labels[i].length());
+        double min = Double.isNaN(lo) ? Math.min(0, min(d, l, n)) : lo, max = Double.isNaN(hi) ? max(d, l, n) : hi;
+        _pen pen = new _pen(out);
+        for (int i = 0; i < n; i++)
+        {
+            if (labels != null)
+            {
+                pen.plain(labels[i]);
+                for (int k = labels[i].length(); k <= pad; k++)
+                    pen.plain(' ');
+            }
+            double v = d != null ? d[i] : l[i];
+            bar(pen, v, min, max, width);
+            pen.plain(' ');
+            if (d != null)
+                pen.plain(Double.toString(v));
+            else
+                pen.plain(Long.toString(l[i]));
+            pen.plain('\n');
+        }
+        return pen.done();
+    }
+
+    private void bar(_pen pen, double v, double min, double max, int width)
+    {
+        if (Double.isNaN(v))
+            return;
+        double t = scale(v, min, max);
+        int eighths = max > 0 ? (int) Math.round(scale(v, 0, max) * width * 8) : 0;
+        for (int k = eighths >> 3; k > 0; k--)
+            pen.draw(FULL, t);
+        if ((eighths & 7) != 0)
+            pen.draw(EIGHTHS[eighths & 7], t);
+    }
+
+    // -------- heatmaps --------
+
+    /**
+     * Values row by row, one full block per value
+     *
+     * @param cols
+     *          Values per row, the last row may be shorter
+     * @return {@code out}
+     */
+    public StringBuilder heatmap(double[] values, int cols, StringBuilder out)
+    {
+        return heatmap(values, null, values.length, cols, out);
+    }
+
+    /**
+     * @return {@code out}
+     */
+    public StringBuilder heatmap(long[] values, int cols, StringBuilder out)
+    {
+        return heatmap(null, values, values.length, cols, out);
+    }
+
+    private StringBuilder heatmap(double[] d, long[] l, int n, int cols, StringBuilder out)
+    {
+        if (cols <= 0)
+            throw new IllegalArgumentException("Columns: " + cols);
+        double min = Double.isNaN(lo) ? min(d, l, n) : lo, max = Double.isNaN(hi) ? max(d, l, n) : hi;
+        _pen pen = new _pen(out);
+        for (int i = 0; i < n; i++)
+        {
+            double v = d != null ? d[i] : l[i];
+            if (Double.isNaN(v))
+                pen.blank();
+            else
+                pen.draw(FULL, scale(v, min, max));
+            if ((i + 1) % cols == 0 || i == n - 1)
+                pen.plain('\n');
+        }
+        return pen.done();
+    }
+
+    // -------- helpers --------
+
+    /**
+     * @return {@code v} in {@code [min, max]} as {@code [0, 1]}, the middle if
+     *         the range is empty (all values equal)
+     */
+    private static double scale(double v, double min, double max)
+    {
+        if (!(max > min))
+            return 0.5D;
+        double t = (v - min) / (max - min);
+        return t < 0 ? 0 : t > 1 ? 1 : t;
+    }
+
+    private static double min(double[] d, long[] l, int n)
+    {
+        double m = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+        {
+            double v = d != null ? d[i] : l[i];
+            if (v < m)
+                m = v;
+        }
+        return m == Double.POSITIVE_INFINITY ? 0 : m;
+    }
+
+    private static double max(double[] d, long[] l, int n)
+    {
+        double m = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+        {
+            double v = d != null ? d[i] : l[i];
+            if (v > m)
+                m = v;
+        }
+        return m == Double.NEGATIVE_INFINITY ? 0 : m;
+    }
+
+    /**
+     * Writes glyphs and only the codes that change, one per draw call
+     */
+    private final class _pen
+    {
+        final StringBuilder out;
+        final String[] r = ramp;
+        final boolean ansi = jm_Ansi.use_ansi();
+        int step = -1;
+
+        _pen(StringBuilder out)
+        {
+            this.out = out;
+        }
+
+        void draw(char glyph, double t)
+        {
+            int s = (int) Math.round(t * (r.length - 1));
+            if (ansi && s != step)
+            {
+                out.append(r[s]);
+                step = s;
+            }
+            out.append(glyph);
+        }
+
+        /**
+         * Cells without a color, a space looks the same in any foreground
+         */
+        void blank()
+        {
+            out.append(' ');
+        }
+
+        void plain(char c)
+        {
+            if (step >= 0)
+            {
+                out.append(jm_Ansi.reset());
+                step = -1;
+            }
+            out.append(c);
+        }
+
+        void plain(String s)
+        {
+            if (step >= 0)
+            {
+                out.append(jm_Ansi.reset());
+                step = -1;
+            }
+            out.append(s);
+        }
+
+        StringBuilder done()
+        {
+            if (step >= 0)
+                out.append(jm_Ansi.reset());
+            return out;
+        }
+    }
+}
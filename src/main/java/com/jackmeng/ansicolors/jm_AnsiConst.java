@@ -0,0 +1,63 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <h2>jm_AnsiConst - Styles resolved at compile time</h2>
+ * <p>
+ * Marks a static field whose style should be turned into constants by
+ * {@link jm_AnsiConstProcessor} while compiling. For a class {@code Colors}:
+ *
+ * <pre>
+ * class Colors {
+ *     &#64;jm_AnsiConst("bold red on black") static Void ERROR;
+ *     &#64;jm_AnsiConst(value = "bold green", text = "OK") static Void OK;
+ * }
+ * </pre>
+ *
+ * a class {@code Colors_Ansi} is generated next to it with
+ *
+ * <pre>
+ * public static final String ERROR = "\033[1;31;40m";
+ * public static final String OK = "\033[1;32mOK\033[0m";
+ * </pre>
+ *
+ * plus {@code ERROR_bytes()}/{@code OK_bytes()} returning a copy of the same
+ * in UTF-8 (the arrays themselves, {@code ERROR_BYTES}, are only visible in
+ * the package so nobody can change them for everyone else). The strings
+ * are real compile time constants: nothing is built at startup and
+ * {@code Colors_Ansi.ERROR + "failed" + Colors_Ansi.RESET} is folded by javac
+ * into a single literal.
+ * </p>
+ * <p>
+ * The style uses the {@link jm_AnsiStyle#parse(String)} format, a typo is a
+ * compile error pointing at the field. The annotated field itself is not used,
+ * {@code Void} is a good type for it.
+ * </p>
+ * [!] Being constants they cannot follow {@link jm_Ansi#use_ansi()}, use
+ * {@link jm_AnsiStyle} where output must be plain on demand. [!]
+ *
+ * @author Jack Meng
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface jm_AnsiConst
+{
+    /**
+     * @return The style, for example {@code "bold white on red"}
+     */
+    String value();
+
+    /**
+     * @return If not empty the constant is this text already wrapped in the
+     *         style and a RESET
+     */
+    String text() default "";
+}
@@ -0,0 +1,149 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+/**
+ * <h2>jm_AnsiConstProcessor - Generates {@link jm_AnsiConst} constants</h2>
+ * <p>
+ * Registered as a service in this jar, so having the library on the
+ * annotation processor path (Gradle: {@code annotationProcessor}) is enough.
+ * Every class with annotated fields gets a {@code <Class>_Ansi} class in the
+ * same package, nested classes are flattened as
+ * {@code Outer_Inner_Ansi}.
+ * </p>
+ *
+ * @author Jack Meng
+ */
+@SupportedAnnotationTypes("com.jackmeng.ansicolors.jm_AnsiConst")
+public final class jm_AnsiConstProcessor extends AbstractProcessor
+{
+    @Override public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round)
+    {
+        Map<TypeElement, List<Element>> by_class = new LinkedHashMap<>();
+        for (Element e : round.getElementsAnnotatedWith(jm_AnsiConst.class))
+        {
+            if (e.getKind() != ElementKind.FIELD || !e.getModifiers().contains(Modifier.STATIC))
+            {
+                error(e, "@jm_AnsiConst only goes on static fields");
+                continue;
+            }
+            by_class.computeIfAbsent((TypeElement) e.getEnclosingElement(), k -> new ArrayList<>()).add(e);
+        }
+        for (Map.Entry<TypeElement, List<Element>> c : by_class.entrySet())
+            generate(c.getKey(), c.getValue());
+        return true;
+    }
+
+    private void generate(TypeElement owner, List<Element> fields)
+    {
+        String pkg = processingEnv.getElementUtils().getPackageOf(owner).getQualifiedName().toString();
+        StringBuilder name = new StringBuilder(owner.getSimpleName());
+        for (Element e = owner.getEnclosingElement(); !(e instanceof PackageElement); e = e.getEnclosingElement())
+            name.insert(0, e.getSimpleName() + "_");
+        String cls = name.append("_Ansi").toString();
+
+        StringBuilder src = new StringBuilder(512);
+        src.append("// Generated by ").append(jm_AnsiConstProcessor.class.getName()).append(" from ")
+                .append(owner.getQualifiedName()).append(", do not edit.\n\n");
+        if (!pkg.isEmpty())
+            src.append("package ").append(pkg).append(";\n\n");
+        src.append("public final class ").append(cls).append("\n{\n");
+        src.append("    private ").append(cls).append("()\n    {\n    }\n\n");
+        src.append("    public static final String RESET = \"\\033[0m\";\n");
+        boolean ok = true;
+        for (Element f : fields)
+        {
+            jm_AnsiConst a = f.getAnnotation(jm_AnsiConst.class);
+            jm_AnsiStyle style;
+            try
+            {
+                style = jm_AnsiStyle.parse(a.value());
+            } catch (IllegalArgumentException ex)
+            {
+                error(f, ex.getMessage());
+                ok = false;
+                continue;
+            }
+            String value = a.text().isEmpty() ? style.sgr()
+                    : style == jm_AnsiStyle.NONE ? a.text() : style.sgr() + a.text() + "\033[0m";
+            String field = f.getSimpleName().toString();
+            src.append("\n    /**\n     * {@code ").append(a.value().replace("*/", "*&#47;")).append("}\n     */\n");
+            src.append("    public static final String ").append(field).append(" = ");
+            literal(value, src).append(";\n");
+            // arrays cannot be constant, shared ones stay in the package and others get a copy
+            src.append("    static final byte[] ").append(field).append("_BYTES = { ");
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < bytes.length; i++)
+                src.append(i == 0 ? "" : ", ").append(bytes[i]);
+            src.append(" };\n\n");
+            src.append("    public static byte[] ").append(field).append("_bytes()\n    {\n        return ").append(field)
+                    .append("_BYTES.clone();\n    }\n");
+        }
+        src.append("}\n");
+        if (!ok)
+            return;
+        try (Writer w = processingEnv.getFiler().createSourceFile(pkg.isEmpty() ? cls : pkg + "." + cls, owner)
+                .openWriter())
+        {
+            w.write(src.toString());
+        } catch (IOException ex)
+        {
+            error(owner, "could not write " + cls + ": " + ex.getMessage());
+        }
+    }
+
+    private static StringBuilder literal(String s, StringBuilder out)
+    {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            // unicode escapes are turned into characters before lexing, an escaped line feed would end the literal
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c == '\n')
+                out.append("\\n");
+            else if (c == '\r')
+                out.append("\\r");
+            else if (c == '\t')
+                out.append("\\t");
+            else if (c < 0x20 || c == 0x7F)
+                out.append('\\').append((char) ('0' + (c >> 6))).append((char) ('0' + (c >> 3 & 7))).append((char) ('0' + (c & 7)));
+            else if (c > 0x7F)
+                out.append(String.format("\\u%04x", (int) c));
+            else
+                out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private void error(Element e, String message)
+    {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+}
@@ -0,0 +1,324 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiDiff - Colored unified diffs</h2>
+ * <p>
+ * Compares two lists of lines and writes the differences in unified format
+ * ({@code diff -u}), removed lines in red and added ones in green. Where a
+ * removed line was changed into an added one, the characters that actually
+ * changed are highlighted on top:
+ *
+ * <pre>
+ * jm_AnsiDiff.make().write("expected", expected, "actual", actual, System.out);
+ * </pre>
+ * </p>
+ * <p>
+ * Lines and characters are compared with Myers' algorithm in linear space, so
+ * besides the two lists only a few arrays as long as them are kept. Hunks are
+ * written out line by line as soon as they are complete and every line ends
+ * in the default style, codes inside a line only change what differs from
+ * the part before it.
+ * </p>
+ * Configure once, then use from as many threads as needed.
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiDiff
+{
+    /**
+     * @return A renderer with 3 lines of context
+     */
+    public static jm_AnsiDiff make()
+    {
+        return new jm_AnsiDiff();
+    }
+
+    /**
+     * Lines longer than this are not compared character by character
+     */
+    private static final int MAX_INTRA = 4096;
+
+    private int context = 3;
+    private jm_AnsiStyle header = jm_AnsiStyle.of(1);
+    private jm_AnsiStyle hunk = jm_AnsiStyle.of(36);
+    private jm_AnsiStyle removed = jm_AnsiStyle.of(31);
+    private jm_AnsiStyle added = jm_AnsiStyle.of(32);
+    private jm_AnsiStyle emphasis = jm_AnsiStyle.of(7);
+
+    private jm_AnsiDiff()
+    {
+    }
+
+    /**
+     * @param lines
+     *          Unchanged lines around each change
+     * @return Instance for cascading
+     */
+    public jm_AnsiDiff context(int lines)
+    {
+        this.context = Math.max(0, lines);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiDiff header_style(jm_AnsiStyle style)
+    {
+        this.header = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiDiff hunk_style(jm_AnsiStyle style)
+    {
+        this.hunk = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiDiff removed_style(jm_AnsiStyle style)
+    {
+        this.removed = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiDiff added_style(jm_AnsiStyle style)
+    {
+        this.added = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * @param style
+     *          Composed into the removed or added style for the characters that
+     *          changed within a line, inverse by default
+     * @return Instance for cascading
+     */
+    public jm_AnsiDiff emphasis_style(jm_AnsiStyle style)
+    {
+        this.emphasis = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * @return The diff, empty if both are equal
+     */
+    public String render(String name_a, List<String> a, String name_b, List<String> b)
+    {
+        StringBuilder sb = new StringBuilder();
+        write(name_a, a, name_b, b, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Writes the diff of {@code a} to {@code b}, nothing if they are equal
+     *
+     * @return The number of hunks written
+     * @throws UncheckedIOException
+     *           if {@code out} fails
+     */
+    public int write(String name_a, List<String> a, String name_b, List<String> b, Appendable out)
+    {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] ia = new int[a.size()], ib = new int[b.size()];
+        for (int i = 0; i < ia.length; i++)
+            ia[i] = ids.computeIfAbsent(a.get(i), k -> ids.size());
+        for (int j = 0; j < ib.length; j++)
+            ib[j] = ids.computeIfAbsent(b.get(j), k -> ids.size());
+        use_Myers d = new use_Myers(ia, ib);
+        return new _pass(a, b, d.removed, d.inserted, out).run(name_a, name_b);
+    }
+
+    /**
+     * A single diff being written
+     */
+    private final class _pass
+    {
+        final List<String> a, b;
+        final boolean[] del, ins;
+        final Appendable out;
+        final StringBuilder line = new StringBuilder(128);
+        int hunks;
+
+        _pass(List<String> a, List<String> b, boolean[] del, boolean[] ins, Appendable out)
+        {
+            this.a = a;
+            this.b = b;
+            this.del = del;
+            this.ins = ins;
+            this.out = out;
+        }
+
+        int run(String name_a, String name_b)
+        {
+            int n = a.size(), m = b.size();
+            int i = 0, j = 0;
+            // the hunk being collected: where it starts and where its last change ends
+            int start_a = -1, start_b = -1, end_a = 0, end_b = 0;
+            while (true)
+            {
+                while (i < n && j < m && !del[i] && !ins[j])
+                {
+                    i++;
+                    j++;
+                }
+                if (i >= n && j >= m)
+                    break;
+                int ci = i, cj = j;
+                while (i < n && del[i])
+                    i++;
+                while (j < m && ins[j])
+                    j++;
+                if (start_a >= 0 && ci - end_a > 2 * context)
+                {
+                    flush(start_a, start_b, end_a, end_b, name_a, name_b);
+                    start_a = -1;
+                }
+                if (start_a < 0)
+                {
+                    start_a = Math.max(0, ci - context);
+                    start_b = cj - (ci - start_a);
+                }
+                end_a = i;
+                end_b = j;
+            }
+            if (start_a >= 0)
+                flush(start_a, start_b, end_a, end_b, name_a, name_b);
+            return hunks;
+        }
+
+        /**
+         * Writes one hunk, the context after its last change is added here
+         */
+        void flush(int from_a, int from_b, int to_a, int to_b, String name_a, String name_b)
+        {
+            int tail = Math.min(context, a.size() - to_a);
+            to_a += tail;
+            to_b += tail;
+            if (hunks++ == 0)
+            {
+                emit(header, "--- " + name_a);
+                emit(header, "+++ " + name_b);
+            }
+            line.setLength(0);
+            line.append("@@ -");
+            range(from_a, to_a - from_a);
+            line.append(" +");
+            range(from_b, to_b - from_b);
+            line.append(" @@");
+            emit(hunk, line.toString());
+            int i = from_a, j = from_b;
+            while (i < to_a || j < to_b)
+            {
+                if (i < to_a && j < to_b && !del[i] && !ins[j])
+                {
+                    emit(jm_AnsiStyle.NONE, " " + a.get(i++));
+                    j++;
+                    continue;
+                }
+                int ci = i, cj = j;
+                while (i < to_a && del[i])
+                    i++;
+                while (j < to_b && ins[j])
+                    j++;
+                change(ci, i, cj, j);
+            }
+        }
+
+        void range(int from, int len)
+        {
+            line.append(len == 0 ? from : from + 1);
+            if (len != 1)
+                line.append(',').append(len);
+        }
+
+        /**
+         * A block of removed lines followed by the added lines that replace them,
+         * paired up by position for highlighting
+         */
+        void change(int ci, int i, int cj, int j)
+        {
+            int pairs = Math.min(i - ci, j - cj);
+            boolean[][] removed_marks = new boolean[pairs][], added_marks = new boolean[pairs][];
+            for (int k = 0; k < pairs; k++)
+            {
+                String x = a.get(ci + k), y = b.get(cj + k);
+                if (x.length() > MAX_INTRA || y.length() > MAX_INTRA)
+                    continue;
+                use_Myers d = new use_Myers(use_Myers.chars(x), use_Myers.chars(y));
+                int kept = 0;
+                for (boolean r : d.removed)
+                    if (!r)
+                        kept++;
+                // only worth it if most of the line stayed, otherwise everything would be highlighted
+                if (kept * 2 >= Math.max(x.length(), y.length()))
+                {
+                    removed_marks[k] = d.removed;
+                    added_marks[k] = d.inserted;
+                }
+            }
+            for (int k = ci; k < i; k++)
+                styled('-', a.get(k), removed, k - ci < pairs ? removed_marks[k - ci] : null);
+            for (int k = cj; k < j; k++)
+                styled('+', b.get(k), added, k - cj < pairs ? added_marks[k - cj] : null);
+        }
+
+        void styled(char sign, String text, jm_AnsiStyle base, boolean[] marks)
+        {
+            line.setLength(0);
+            jm_AnsiSpans s = jm_AnsiSpans.make(line).push(base).text(sign);
+            if (marks == null)
+                s.text(text);
+            else
+                for (int from = 0; from < text.length();)
+                {
+                    boolean mark = marks[from];
+                    int to = from + 1;
+                    while (to < text.length() && marks[to] == mark)
+                        to++;
+                    if (mark)
+                        s.push(emphasis).text(text.subSequence(from, to)).pop();
+                    else
+                        s.text(text.subSequence(from, to));
+                    from = to;
+                }
+            s.finish();
+            raw();
+        }
+
+        void emit(jm_AnsiStyle style, String text)
+        {
+            line.setLength(0);
+            style.wrap(text, line);
+            raw();
+        }
+
+        void raw()
+        {
+            try
+            {
+                out.append(line).append('\n');
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
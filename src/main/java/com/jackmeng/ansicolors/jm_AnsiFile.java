@@ -0,0 +1,588 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <h2>jm_AnsiFile - Bulk transcoding of colored files</h2>
+ * <p>
+ * Turns a file written with escape sequences (a log colored by {@link jm_Ansi}
+ * for example) into one of:
+ * <ul>
+ * <li>{@link #strip()} - plain text</li>
+ * <li>{@link #html()} - an HTML page with every style run in a
+ * {@code <span>}</li>
+ * <li>{@link #downsample(int)} - the same escapes with truecolor and 256 colors
+ * brought down to what a 256 or 16 color terminal can show, rewritten code by
+ * code the same as {@link jm_AnsiFilterStream#downsample(int)} does</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The input is memory mapped a window at a time and cut into line aligned
+ * chunks which are transcoded in parallel on a {@link ForkJoinPool}. For HTML,
+ * styles that carry over a line break are handled by first working out what every
+ * chunk does to the style (also in parallel) and then chaining those results,
+ * so the output is exactly what a single pass would have made. The finished
+ * chunks of a window go out with one gathering write.
+ * </p>
+ *
+ * <pre>
+ * jm_AnsiFile.make().html().transcode(Paths.get("app.log"), Paths.get("app.html"));
+ * </pre>
+ *
+ * Also runnable on its own:
+ * {@code java com.jackmeng.ansicolors.jm_AnsiFile strip|html|256|16 <in> <out>}
+ * <p>
+ * [!] A single line longer than a window (64 MB) may have an escape sequence
+ * cut at the window border. [!]
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiFile
+{
+    private static final int STRIP = 0, HTML = 1, DOWNSAMPLE = 2;
+
+    private static final long WINDOW = 64L << 20;
+
+    /**
+     * Opening tags kept for reuse, styles past this many are built every time
+     */
+    private static final int SPANS_MAX = 4096;
+
+    private static final byte[] HTML_HEAD = "<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"></head><body><pre>"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HTML_TAIL = "</pre></body></html>\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SPAN_CLOSE = "</span>".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Every attribute and a color no chunk is likely to start with, see
+     * {@link #chain(long, long, long)}
+     */
+    private static final long PROBE = use_Sgr.with_attrs(
+            use_Sgr.with_bg(use_Sgr.with_fg(0L, use_Sgr.rgb(1, 2, 3)), use_Sgr.rgb(1, 2, 3)), use_Sgr.ATTR_MASK);
+
+    /**
+     * @return A transcoder that strips, with 1 MB chunks on the common pool
+     */
+    public static jm_AnsiFile make()
+    {
+        return new jm_AnsiFile();
+    }
+
+    private int mode = STRIP, colors = 256, chunk = 1 << 20;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private jm_AnsiFile()
+    {
+    }
+
+    /**
+     * Output plain text
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiFile strip()
+    {
+        mode = STRIP;
+        return this;
+    }
+
+    /**
+     * Output an HTML page, escapes other than SGR are dropped
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiFile html()
+    {
+        mode = HTML;
+        return this;
+    }
+
+    /**
+     * Keep the escapes but bring every color down to the nearest one a
+     * terminal with this many colors has
+     *
+     * @param colors
+     *          256 or 16
+     * @return Instance for cascading
+     */
+    public jm_AnsiFile downsample(int colors)
+    {
+        if (colors != 256 && colors != 16)
+            throw new IllegalArgumentException("colors must be 256 or 16, got " + colors);
+        this.mode = DOWNSAMPLE;
+        this.colors = colors;
+        return this;
+    }
+
+    /**
+     * @param bytes
+     *          Roughly how much input one task handles, chunks are extended to
+     *          the next line break. At least 4096, default is 1 MB.
+     * @return Instance for cascading
+     */
+    public jm_AnsiFile chunk_size(int bytes)
+    {
+        this.chunk = Math.max(4096, bytes);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiFile pool(ForkJoinPool pool)
+    {
+        this.pool = Objects.requireNonNull(pool);
+        return this;
+    }
+
+    /**
+     * Transcodes {@code in} into {@code out}, replacing {@code out}
+     *
+     * @return number of bytes written
+     */
+    public long transcode(Path in, Path out) throws IOException
+    {
+        final int mode = this.mode, colors = this.colors;
+        Map<Long, byte[]> spans = new ConcurrentHashMap<>();
+        long written = 0;
+        try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+                FileChannel dst = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            if (mode == HTML)
+                written += use_Parallel.write_all(dst, ByteBuffer.wrap(HTML_HEAD));
+            long size = src.size(), pos = 0, style = 0L;
+            while (pos < size)
+            {
+                MappedByteBuffer map = src.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, size - pos));
+                int end = map.limit();
+                if (pos + end < size)
+                {
+                    int nl = end - 1;
+                    while (nl >= 0 && map.get(nl) != '\n')
+                        nl--;
+                    if (nl >= 0)
+                        end = nl + 1;
+                }
+                int[] bounds = split(map, end);
+                int n = bounds.length - 1;
+                long[] starts = new long[n];
+                if (mode == HTML)
+                {
+                    long[] from_zero = new long[n], from_probe = new long[n];
+                    use_Parallel.each(pool, n, k -> {
+                        _worker w = new _worker(mode, colors, spans);
+                        w.effect(map, bounds[k], bounds[k + 1]);
+                        from_zero[k] = w.zero;
+                        from_probe[k] = w.probe;
+                    });
+                    for (int k = 0; k < n; k++)
+                    {
+                        starts[k] = style;
+                        style = chain(style, from_zero[k], from_probe[k]);
+                    }
+                }
+                ByteBuffer[] outs = new ByteBuffer[n];
+                use_Parallel.each(pool, n, k -> {
+                    use_Bytes b = new use_Bytes(bounds[k + 1] - bounds[k] + 64);
+                    new _worker(mode, colors, spans).render(map, bounds[k], bounds[k + 1], starts[k], b);
+                    outs[k] = ByteBuffer.wrap(b.a, 0, b.n);
+                });
+                written += use_Parallel.write_all(dst, outs);
+                pos += end;
+            }
+            if (mode == HTML)
+            {
+                // chunks leave their last span open for the next one, the end of the file closes it
+                if (style != 0L)
+                    written += use_Parallel.write_all(dst, ByteBuffer.wrap(SPAN_CLOSE));
+                written += use_Parallel.write_all(dst, ByteBuffer.wrap(HTML_TAIL));
+            }
+        }
+        return written;
+    }
+
+    /**
+     * @return chunk borders in {@code map[0, end)}, each one just after a line
+     *         break
+     */
+    private int[] split(ByteBuffer map, int end)
+    {
+        int[] bounds = new int[8];
+        int n = 1;
+        for (int at = 0; at < end;)
+        {
+            int next = at + chunk >= end ? end : at + chunk;
+            while (next < end && map.get(next - 1) != '\n')
+                next++;
+            if (n == bounds.length)
+                bounds = Arrays.copyOf(bounds, n << 1);
+            bounds[n++] = at = next;
+        }
+        return Arrays.copyOf(bounds, n);
+    }
+
+    /**
+     * The style a chunk ends with when it starts with {@code start}.
+     * <p>
+     * Every SGR code sets some fields of the style and leaves the rest alone,
+     * so a chunk run once from {@code 0L} and once from {@link #PROBE} tells
+     * exactly which fields it leaves alone: those are the ones that came out
+     * different.
+     */
+    static long chain(long start, long from_zero, long from_probe)
+    {
+        int kept = use_Sgr.attrs(from_zero ^ from_probe);
+        long r = use_Sgr.with_attrs(0L, (use_Sgr.attrs(start) & kept) | (use_Sgr.attrs(from_zero) & ~kept));
+        r = use_Sgr.with_fg(r, use_Sgr.fg(use_Sgr.fg(from_zero) != use_Sgr.fg(from_probe) ? start : from_zero));
+        return use_Sgr.with_bg(r, use_Sgr.bg(use_Sgr.bg(from_zero) != use_Sgr.bg(from_probe) ? start : from_zero));
+    }
+
+    /**
+     * CSS for one style, default colors follow the page
+     */
+    static String css(long style)
+    {
+        int a = use_Sgr.attrs(style);
+        int fg = use_Sgr.to_rgb(use_Sgr.fg(style)), bg = use_Sgr.to_rgb(use_Sgr.bg(style));
+        String color = fg < 0 ? null : hex(fg), background = bg < 0 ? null : hex(bg);
+        if ((a & use_Sgr.INVERSE) != 0)
+        {
+            String t = color;
+            color = background == null ? "Canvas" : background;
+            background = t == null ? "CanvasText" : t;
+        }
+        StringBuilder sb = new StringBuilder(64);
+        if (color != null)
+            sb.append("color:").append(color).append(';');
+        if (background != null)
+            sb.append("background:").append(background).append(';');
+        if ((a & use_Sgr.BOLD) != 0)
+            sb.append("font-weight:bold;");
+        if ((a & use_Sgr.DIM) != 0)
+            sb.append("opacity:.7;");
+        if ((a & use_Sgr.ITALIC) != 0)
+            sb.append("font-style:italic;");
+        if ((a & (use_Sgr.UNDERLINE | use_Sgr.STRIKE | use_Sgr.OVERLINED)) != 0)
+        {
+            sb.append("text-decoration:");
+            if ((a & use_Sgr.UNDERLINE) != 0)
+                sb.append(" underline");
+            if ((a & use_Sgr.STRIKE) != 0)
+                sb.append(" line-through");
+            if ((a & use_Sgr.OVERLINED) != 0)
+                sb.append(" overline");
+            sb.append(';');
+        }
+        if ((a & use_Sgr.HIDE) != 0)
+            sb.append("visibility:hidden;");
+        return sb.toString();
+    }
+
+    private static String hex(int rgb)
+    {
+        return "#" + Integer.toHexString(0x1000000 | rgb).substring(1);
+    }
+
+    /**
+     * The SGR rewriting of {@link jm_AnsiFilterStream} writing into a
+     * {@link use_Bytes}
+     */
+    private static final class _rewrite extends use_AnsiFilter
+    {
+        use_Bytes out;
+
+        _rewrite(int colors)
+        {
+            downsample(colors);
+        }
+
+        @Override void emit_raw(char[] raw, int from, int to)
+        {
+            out.room(to - from);
+            for (int i = from; i < to; i++)
+                out.a[out.n++] = (byte) raw[i];
+        }
+
+        @Override void emit_sgr(StringBuilder seq)
+        {
+            out.utf8(seq);
+        }
+    }
+
+    /**
+     * Transcodes one chunk, not shared between threads
+     */
+    private static final class _worker
+    {
+        private static final int ESCAPE = 1, CSI = 2, OSC = 3, OSC_ESC = 4;
+
+        final int mode;
+        final Map<Long, byte[]> spans;
+        final _rewrite rewrite;
+        final int[] p = new int[use_AnsiScan.MAX_PARAMS];
+        int n;
+        boolean sgr;
+        long zero, probe;
+
+        _worker(int mode, int colors, Map<Long, byte[]> spans)
+        {
+            this.mode = mode;
+            this.spans = spans;
+            this.rewrite = mode == DOWNSAMPLE ? new _rewrite(colors) : null;
+        }
+
+        /**
+         * Runs the SGR codes of {@code m[from, to)} from both {@code 0L} and
+         * {@link #PROBE}
+         */
+        void effect(ByteBuffer m, int from, int to)
+        {
+            zero = 0L;
+            probe = PROBE;
+            for (int i = from; i < to;)
+            {
+                int e = jm_AnsiStrip.index_of_escape(m, i, to);
+                if (e < 0)
+                    break;
+                i = escape(m, e, to);
+                if (sgr)
+                {
+                    zero = use_Sgr.apply(zero, p, n);
+                    probe = use_Sgr.apply(probe, p, n);
+                }
+            }
+        }
+
+        void render(ByteBuffer m, int from, int to, long style, use_Bytes out)
+        {
+            if (mode == STRIP)
+            {
+                ByteBuffer dst = ByteBuffer.wrap(out.a);
+                jm_AnsiStrip.make().strip(m.slice(from, to - from), dst);
+                out.n = dst.position();
+                return;
+            }
+            if (mode == DOWNSAMPLE)
+            {
+                downsample(m, from, to, out);
+                return;
+            }
+            // the span of the start style is still open from the chunk before
+            long shown = style;
+            for (int i = from; i < to;)
+            {
+                int e = jm_AnsiStrip.index_of_escape(m, i, to), stop = e < 0 ? to : e;
+                html_text(m, i, stop, out);
+                if (e < 0)
+                    break;
+                i = escape(m, e, to);
+                if (!sgr)
+                    continue;
+                style = use_Sgr.apply(style, p, n);
+                if (style == shown)
+                    continue;
+                if (shown != 0L)
+                    out.put(SPAN_CLOSE);
+                if (style != 0L)
+                    out.put(span(style));
+                shown = style;
+            }
+        }
+
+        /**
+         * Copies the text and hands every escape sequence to {@link #rewrite},
+         * each one is rewritten on its own so no style has to be carried in
+         */
+        private void downsample(ByteBuffer m, int from, int to, use_Bytes out)
+        {
+            rewrite.out = out;
+            try
+            {
+                for (int i = from; i < to;)
+                {
+                    if (rewrite.idle())
+                    {
+                        int e = jm_AnsiStrip.index_of_escape(m, i, to), stop = e < 0 ? to : e;
+                        copy(m, i, stop, out);
+                        if (e < 0)
+                            break;
+                        rewrite.begin();
+                        i = e + 1;
+                    }
+                    else
+                        rewrite.feed(m.get(i++) & 0xFF);
+                }
+                rewrite.end();
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e); // use_Bytes never throws
+            }
+        }
+
+        private byte[] span(long style)
+        {
+            byte[] b = spans.get(style);
+            if (b == null)
+            {
+                b = ("<span style=\"" + css(style) + "\">").getBytes(StandardCharsets.US_ASCII);
+                if (spans.size() < SPANS_MAX)
+                    spans.put(style, b);
+            }
+            return b;
+        }
+
+        private static void copy(ByteBuffer m, int from, int to, use_Bytes out)
+        {
+            out.room(to - from);
+            m.get(from, out.a, out.n, to - from);
+            out.n += to - from;
+        }
+
+        private static void html_text(ByteBuffer m, int from, int to, use_Bytes out)
+        {
+            int len = to - from;
+            out.room(len * 5);
+            byte[] a = out.a;
+            int o = out.n, raw = o + len * 4;
+            // read in bulk into the tail of the room made, the writes never catch up with the reads
+            m.get(from, a, raw, len);
+            for (int i = raw, end = raw + len; i < end; i++)
+            {
+                byte c = a[i];
+                if (c == '<')
+                {
+                    a[o++] = '&';
+                    a[o++] = 'l';
+                    a[o++] = 't';
+                    a[o++] = ';';
+                }
+                else if (c == '>')
+                {
+                    a[o++] = '&';
+                    a[o++] = 'g';
+                    a[o++] = 't';
+                    a[o++] = ';';
+                }
+                else if (c == '&')
+                {
+                    a[o++] = '&';
+                    a[o++] = 'a';
+                    a[o++] = 'm';
+                    a[o++] = 'p';
+                    a[o++] = ';';
+                }
+                else
+                    a[o++] = c;
+            }
+            out.n = o;
+        }
+
+        /**
+         * Reads the escape sequence starting at {@code m[at]} (an ESC), leaving
+         * the SGR parameters in {@link #p} if it is one.
+         *
+         * @return the index just past the sequence
+         */
+        private int escape(ByteBuffer m, int at, int to)
+        {
+            int state = ESCAPE, current = 0;
+            boolean has_current = false, private_csi = false, sub = false;
+            sgr = false;
+            n = 0;
+            for (int i = at + 1; i < to; i++)
+            {
+                int c = m.get(i) & 0xFF;
+                switch (state)
+                {
+                    case ESCAPE:
+                        if (c == '[')
+                            state = CSI;
+                        else if (c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_')
+                            state = OSC;
+                        else if (c < 0x20 || c > 0x2F)
+                            return i + 1;
+                        break;
+                    case CSI:
+                        if (c >= '0' && c <= '9')
+                        {
+                            current = Math.min(0xFFFF, current * 10 + c - '0');
+                            has_current = true;
+                        }
+                        else if (c == ';' || c == ':')
+                        {
+                            if (n < p.length)
+                                p[n++] = current | (sub ? use_Sgr.SUB : 0);
+                            current = 0;
+                            has_current = false;
+                            sub = c == ':';
+                        }
+                        else if (c >= 0x3C && c <= 0x3F || c >= 0x20 && c <= 0x2F)
+                            private_csi = true;
+                        else if (c >= 0x40 && c <= 0x7E)
+                        {
+                            if (c == 'm' && !private_csi)
+                            {
+                                if ((has_current || n > 0) && n < p.length)
+                                    p[n++] = current | (sub ? use_Sgr.SUB : 0);
+                                sgr = true;
+                            }
+                            return i + 1;
+                        }
+                        else
+                            return c == 0x1B ? i : i + 1; // broken sequence, a new ESC starts over
+                        break;
+                    case OSC:
+                        if (c == '\007')
+                            return i + 1;
+                        if (c == 0x1B)
+                            state = OSC_ESC;
+                        break;
+                    default: // OSC_ESC
+                        if (c == '\\')
+                            return i + 1;
+                        state = OSC;
+                        break;
+                }
+            }
+            return to;
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 3)
+        {
+            System.err.println("usage: jm_AnsiFile strip|html|256|16 <in> <out>");
+            System.exit(2);
+        }
+        jm_AnsiFile f = make();
+        if (args[0].equals("html"))
+            f.html();
+        else if (args[0].equals("256") || args[0].equals("16"))
+            f.downsample(Integer.parseInt(args[0]));
+        else if (!args[0].equals("strip"))
+        {
+            System.err.println("unknown mode " + args[0]);
+            System.exit(2);
+        }
+        long t = System.nanoTime(), n = f.transcode(Paths.get(args[1]), Paths.get(args[2]));
+        System.err.printf("%d bytes in %.2f s%n", n, (System.nanoTime() - t) / 1e9);
+    }
+}
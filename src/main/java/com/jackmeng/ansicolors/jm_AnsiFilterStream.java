@@ -0,0 +1,214 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiFilterStream - Transforming escapes on the way out</h2>
+ * <p>
+ * An {@link OutputStream} that rewrites the escape sequences going through it
+ * for a sink with other capabilities than the one the text was made for:
+ * <ul>
+ * <li>{@link #strip()} - plain text for a file</li>
+ * <li>{@link #downsample(int)} - 256 or 16 colors for an older terminal</li>
+ * <li>{@link #palette(int...)} - the 16 basic colors replaced with exact RGB
+ * values, for a consistent look across terminal themes</li>
+ * </ul>
+ * Without any of them bytes pass through unchanged, with them only the colors
+ * inside SGR sequences are replaced.
+ * </p>
+ * <p>
+ * An escape sequence cut between two writes is picked up where it was left,
+ * text between escapes is passed on in a single write and nothing is
+ * allocated per write. Combined with {@link #tee(OutputStream...)} one
+ * {@link java.io.PrintStream} can feed several sinks at once:
+ *
+ * <pre>
+ * PrintStream both = new PrintStream(jm_AnsiFilterStream.tee(System.out,
+ *         jm_AnsiFilterStream.make(new FileOutputStream("run.log")).strip()), true);
+ * jm_Ansi.make("done").green().print(both);
+ * </pre>
+ * </p>
+ * [!] Not thread safe, the same as the streams it wraps usually are not. [!]
+ *
+ * @author Jack Meng
+ * @see jm_AnsiFilterWriter
+ */
+public final class jm_AnsiFilterStream extends FilterOutputStream
+{
+    /**
+     * @return A filter in front of {@code out} that passes everything through
+     *         until configured
+     */
+    public static jm_AnsiFilterStream make(OutputStream out)
+    {
+        return new jm_AnsiFilterStream(Objects.requireNonNull(out));
+    }
+
+    /**
+     * @return A stream that writes, flushes and closes all of {@code sinks} in
+     *         order
+     */
+    public static OutputStream tee(OutputStream... sinks)
+    {
+        return new _tee(sinks.clone());
+    }
+
+    private final _filter filter = new _filter();
+    private final byte[] scratch = new byte[use_AnsiFilter.RAW_MAX];
+
+    private jm_AnsiFilterStream(OutputStream out)
+    {
+        super(out);
+    }
+
+    /**
+     * Drop every escape sequence
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiFilterStream strip()
+    {
+        filter.strip();
+        return this;
+    }
+
+    /**
+     * @param colors
+     *          256 or 16
+     * @return Instance for cascading
+     */
+    public jm_AnsiFilterStream downsample(int colors)
+    {
+        filter.downsample(colors);
+        return this;
+    }
+
+    /**
+     * @param rgb
+     *          16 {@code 0xRRGGBB} values used in place of the basic and bright
+     *          colors, can be combined with {@link #downsample(int)}
+     * @return Instance for cascading
+     */
+    public jm_AnsiFilterStream palette(int... rgb)
+    {
+        filter.palette(rgb);
+        return this;
+    }
+
+    @Override public void write(int b) throws IOException
+    {
+        if (!filter.idle())
+            filter.feed(b & 0xFF);
+        else if (b == use_AnsiFilter.ESC)
+            filter.begin();
+        else
+            out.write(b);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException
+    {
+        Objects.checkFromIndexSize(off, len, b.length);
+        for (int i = off, end = off + len; i < end;)
+        {
+            if (filter.idle())
+            {
+                int e = jm_AnsiStrip.index_of_escape(b, i, end), stop = e < 0 ? end : e;
+                if (stop > i)
+                    out.write(b, i, stop - i);
+                if (e < 0)
+                    break;
+                filter.begin();
+                i = e + 1;
+            }
+            else
+                filter.feed(b[i++] & 0xFF);
+        }
+    }
+
+    /**
+     * Passes on an escape sequence that was left unfinished, unless stripping,
+     * before closing the sink
+     */
+    @Override public void close() throws IOException
+    {
+        try
+        {
+            filter.end();
+        } finally
+        {
+            super.close();
+        }
+    }
+
+    private final class _filter extends use_AnsiFilter
+    {
+        @Override void emit_raw(char[] raw, int from, int to) throws IOException
+        {
+            for (int i = from; i < to; i++)
+                scratch[i - from] = (byte) raw[i];
+            out.write(scratch, 0, to - from);
+        }
+
+        @Override void emit_sgr(StringBuilder seq) throws IOException
+        {
+            for (int at = 0; at < seq.length();)
+            {
+                int k = 0;
+                for (; k < scratch.length && at < seq.length(); k++, at++)
+                    scratch[k] = (byte) seq.charAt(at);
+                out.write(scratch, 0, k);
+            }
+        }
+    }
+
+    private static final class _tee extends OutputStream
+    {
+        private final OutputStream[] sinks;
+
+        _tee(OutputStream[] sinks)
+        {
+            this.sinks = sinks;
+        }
+
+        @Override public void write(int b) throws IOException
+        {
+            for (OutputStream s : sinks)
+                s.write(b);
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException
+        {
+            for (OutputStream s : sinks)
+                s.write(b, off, len);
+        }
+
+        @Override public void flush() throws IOException
+        {
+            for (OutputStream s : sinks)
+                s.flush();
+        }
+
+        @Override public void close() throws IOException
+        {
+            IOException first = null;
+            for (OutputStream s : sinks)
+                try
+                {
+                    s.close();
+                } catch (IOException e)
+                {
+                    if (first == null)
+                        first = e;
+                    else
+                        first.addSuppressed(e);
+                }
+            if (first != null)
+                throw first;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiFilterWriter - Transforming escapes on the way out</h2>
+ * <p>
+ * The {@link Writer} twin of {@link jm_AnsiFilterStream}: strips, downsamples
+ * or re-palettes escape sequences as text is written, resuming sequences cut
+ * between writes and without allocating per write.
+ * </p>
+ *
+ * <pre>
+ * Writer log = jm_AnsiFilterWriter.make(Files.newBufferedWriter(path)).strip();
+ * </pre>
+ *
+ * [!] Not thread safe. [!]
+ *
+ * @author Jack Meng
+ * @see jm_AnsiFilterStream
+ */
+public final class jm_AnsiFilterWriter extends FilterWriter
+{
+    /**
+     * @return A filter in front of {@code out} that passes everything through
+     *         until configured
+     */
+    public static jm_AnsiFilterWriter make(Writer out)
+    {
+        return new jm_AnsiFilterWriter(Objects.requireNonNull(out));
+    }
+
+    private final _filter filter = new _filter();
+    private final char[] scratch = new char[use_AnsiFilter.RAW_MAX];
+
+    private jm_AnsiFilterWriter(Writer out)
+    {
+        super(out);
+    }
+
+    /**
+     * Drop every escape sequence
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiFilterWriter strip()
+    {
+        filter.strip();
+        return this;
+    }
+
+    /**
+     * @param colors
+     *          256 or 16
+     * @return Instance for cascading
+     */
+    public jm_AnsiFilterWriter downsample(int colors)
+    {
+        filter.downsample(colors);
+        return this;
+    }
+
+    /**
+     * @param rgb
+     *          16 {@code 0xRRGGBB} values used in place of the basic and bright
+     *          colors, can be combined with {@link #downsample(int)}
+     * @return Instance for cascading
+     */
+    public jm_AnsiFilterWriter palette(int... rgb)
+    {
+        filter.palette(rgb);
+        return this;
+    }
+
+    @Override public void write(int c) throws IOException
+    {
+        if (!filter.idle())
+            filter.feed(c & 0xFFFF);
+        else if (c == use_AnsiFilter.ESC)
+            filter.begin();
+        else
+            out.write(c);
+    }
+
+    @Override public void write(char[] b, int off, int len) throws IOException
+    {
+        Objects.checkFromIndexSize(off, len, b.length);
+        for (int i = off, end = off + len; i < end;)
+        {
+            if (filter.idle())
+            {
+                int stop = i;
+                while (stop < end && b[stop] != use_AnsiFilter.ESC)
+                    stop++;
+                if (stop > i)
+                    out.write(b, i, stop - i);
+                if (stop == end)
+                    break;
+                filter.begin();
+                i = stop + 1;
+            }
+            else
+                filter.feed(b[i++]);
+        }
+    }
+
+    @Override public void write(String s, int off, int len) throws IOException
+    {
+        Objects.checkFromIndexSize(off, len, s.length());
+        for (int i = off, end = off + len; i < end;)
+        {
+            if (filter.idle())
+            {
+                int e = s.indexOf(use_AnsiFilter.ESC, i), stop = e < 0 || e >= end ? end : e;
+                if (stop > i)
+                    out.write(s, i, stop - i);
+                if (stop == end)
+                    break;
+                filter.begin();
+                i = stop + 1;
+            }
+            else
+                filter.feed(s.charAt(i++));
+        }
+    }
+
+    /**
+     * Passes on an escape sequence that was left unfinished, unless stripping,
+     * before closing the sink
+     */
+    @Override public void close() throws IOException
+    {
+        try
+        {
+            filter.end();
+        } finally
+        {
+            super.close();
+        }
+    }
+
+    private final class _filter extends use_AnsiFilter
+    {
+        @Override void emit_raw(char[] raw, int from, int to) throws IOException
+        {
+            out.write(raw, from, to - from);
+        }
+
+        @Override void emit_sgr(StringBuilder seq) throws IOException
+        {
+            for (int at = 0; at < seq.length(); at += scratch.length)
+            {
+                int k = Math.min(scratch.length, seq.length() - at);
+                seq.getChars(at, at + k, scratch, 0);
+                out.write(scratch, 0, k);
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiHex - Colored hex dumps</h2>
+ * <p>
+ * Dumps bytes in the familiar {@code hexdump -C} layout with every byte
+ * colored by its class:
+ * <ul>
+ * <li>zero - {@code 0x00}</li>
+ * <li>printable - {@code 0x20} to {@code 0x7E}</li>
+ * <li>control - the rest of ASCII</li>
+ * <li>high - {@code 0x80} and up</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Bytes are read from a {@link ByteBuffer} (heap or direct) one line at a
+ * time, the capture itself is never copied and its position is left alone.
+ * Hex digits and classes come from
+ * lookup tables, eight bytes at a time are classified with a single
+ * {@code long} (SWAR) so runs of zeros or text skip the per byte work, and a
+ * style is only written when the class actually changes.
+ * </p>
+ *
+ * <pre>
+ * jm_AnsiHex.make().dump(packet, System.out);
+ * </pre>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiHex
+{
+    private static final int ZERO = 0, PRINTABLE = 1, CONTROL = 2, HIGH = 3, NONE = 4;
+
+    private static final byte[] HEX = use_Tables.HEX_PAIRS;
+    private static final byte[] CLASS = new byte[256];
+
+    private static final long ONES = 0x0101010101010101L, HIGHS = 0x8080808080808080L;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    static
+    {
+        for (int i = 0; i < 256; i++)
+            CLASS[i] = (byte) (i == 0 ? ZERO : i >= 0x20 && i < 0x7F ? PRINTABLE : i < 0x80 ? CONTROL : HIGH);
+    }
+
+    private static final ThreadLocal<use_Bytes> BUFFERS = ThreadLocal.withInitial(() -> new use_Bytes(8192));
+
+    /**
+     * Output is written to the sink whenever this much has been buffered
+     */
+    private static final int CHUNK = 1 << 16;
+
+    /**
+     * @return A dumper with 16 bytes per line and the default styles
+     */
+    public static jm_AnsiHex make()
+    {
+        return new jm_AnsiHex();
+    }
+
+    private final jm_AnsiStyle[] styles = { jm_AnsiStyle.of(90), jm_AnsiStyle.of(36), jm_AnsiStyle.of(32), jm_AnsiStyle.of(33),
+            jm_AnsiStyle.NONE };
+    private jm_AnsiStyle offset_style = jm_AnsiStyle.of(2);
+    private int columns = 16;
+    private boolean squeeze = true;
+    private volatile byte[][] switches; // [from class][to class] -> escape code, built on demand
+
+    private jm_AnsiHex()
+    {
+    }
+
+    public jm_AnsiHex zero_style(jm_AnsiStyle style)
+    {
+        return style(ZERO, style);
+    }
+
+    public jm_AnsiHex printable_style(jm_AnsiStyle style)
+    {
+        return style(PRINTABLE, style);
+    }
+
+    public jm_AnsiHex control_style(jm_AnsiStyle style)
+    {
+        return style(CONTROL, style);
+    }
+
+    public jm_AnsiHex high_style(jm_AnsiStyle style)
+    {
+        return style(HIGH, style);
+    }
+
+    /**
+     * Style of the offset column on the left
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiHex offset_style(jm_AnsiStyle style)
+    {
+        offset_style = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * @param columns
+     *          Bytes per line (1 to 256), multiples of 8 take the fast path.
+     *          Default is 16.
+     * @return Instance for cascading
+     */
+    public jm_AnsiHex columns(int columns)
+    {
+        if (columns < 1 || columns > 256)
+            throw new IllegalArgumentException("columns must be between 1 and 256, got " + columns);
+        this.columns = columns;
+        return this;
+    }
+
+    /**
+     * Whether lines identical to the one above are replaced by a single
+     * {@code *} like {@code hexdump} does. On by default.
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiHex squeeze(boolean squeeze)
+    {
+        this.squeeze = squeeze;
+        return this;
+    }
+
+    private jm_AnsiHex style(int cls, jm_AnsiStyle style)
+    {
+        styles[cls] = Objects.requireNonNull(style);
+        switches = null;
+        return this;
+    }
+
+    /**
+     * Dumps {@code buf[position, limit)} to {@code out}, the buffer is not
+     * modified.
+     */
+    public void dump(ByteBuffer buf, OutputStream out)
+    {
+        use_Bytes b = BUFFERS.get().clear();
+        dump(buf, b, out);
+        b.write_to(out);
+        b.clear();
+    }
+
+    public void dump(byte[] a, int off, int len, OutputStream out)
+    {
+        dump(ByteBuffer.wrap(a, off, len), out);
+    }
+
+    /**
+     * @return {@code buf[position, limit)} dumped to a String, the buffer is not
+     *         modified
+     */
+    public String dump(ByteBuffer buf)
+    {
+        use_Bytes b = new use_Bytes(buf.remaining() * 5 + 64);
+        dump(buf, b, null);
+        return b.toString();
+    }
+
+    public String dump(byte[] a)
+    {
+        return dump(ByteBuffer.wrap(a));
+    }
+
+    /**
+     * @param sink
+     *          if not null, {@code out} is drained into it every {@link #CHUNK}
+     *          bytes
+     */
+    private void dump(ByteBuffer buf, use_Bytes out, OutputStream sink)
+    {
+        boolean color = jm_Ansi.use_ansi();
+        byte[][] sw = color ? switches() : null;
+        int start = buf.position(), end = buf.limit(), cols = columns;
+        // only one line at a time is staged, padded so the 8 byte reads never run off
+        byte[] line = new byte[cols + 8], prev = new byte[cols + 8];
+        boolean starred = false;
+        for (int p = start; p < end; p += cols)
+        {
+            int len = Math.min(cols, end - p);
+            buf.get(p, line, 0, len);
+            if (squeeze && p > start && len == cols && Arrays.equals(line, 0, cols, prev, 0, cols))
+            {
+                if (!starred)
+                    out.utf8("*\n");
+                starred = true;
+                continue;
+            }
+            starred = false;
+            line(line, len, p - start, out, sw);
+            byte[] t = prev;
+            prev = line;
+            line = t;
+            if (sink != null && out.length() >= CHUNK)
+            {
+                out.write_to(sink);
+                out.clear();
+            }
+        }
+        if (end > start)
+        {
+            offset(end - start, out, sw);
+            out.ascii('\n');
+        }
+    }
+
+    /**
+     * Writes one line straight into the buffer's array, room for the worst
+     * case is made up front so the inner loops only touch locals. Each area
+     * can switch class once per column and once more back to none, a column
+     * takes at most four bytes of hex and one of text.
+     */
+    private void line(byte[] b, int len, long offset, use_Bytes out, byte[][] sw)
+    {
+        int cols = columns;
+        offset(offset, out, sw);
+        out.room((2 * cols + 2) * (sw == null ? 0 : max_switch(sw)) + 5 * cols + 16);
+        byte[] a = out.a;
+        int n = out.n;
+        a[n++] = ' ';
+        a[n++] = ' ';
+
+        // hex area
+        int cur = NONE;
+        for (int i = 0; i < cols;)
+        {
+            int uniform = i + 8 <= len && (i & 7) == 0 ? uniform((long) LONGS.get(b, i)) : -1;
+            if (uniform != -1)
+            {
+                n = to(cur, uniform, a, n, sw);
+                cur = uniform;
+                for (int k = 0; k < 8; k++, i++)
+                {
+                    int x = (b[i] & 0xFF) << 1;
+                    a[n++] = HEX[x];
+                    a[n++] = HEX[x + 1];
+                    a[n++] = ' ';
+                }
+                if (i < cols)
+                    a[n++] = ' ';
+                continue;
+            }
+            if (i < len)
+            {
+                int v = b[i] & 0xFF;
+                n = to(cur, CLASS[v], a, n, sw);
+                cur = CLASS[v];
+                a[n++] = HEX[v << 1];
+                a[n++] = HEX[(v << 1) + 1];
+            }
+            else
+            {
+                n = to(cur, NONE, a, n, sw);
+                cur = NONE;
+                a[n++] = ' ';
+                a[n++] = ' ';
+            }
+            a[n++] = ' ';
+            if ((i & 7) == 7 && i + 1 < cols)
+                a[n++] = ' ';
+            i++;
+        }
+        n = to(cur, NONE, a, n, sw);
+        cur = NONE;
+
+        // text area
+        a[n++] = ' ';
+        a[n++] = '|';
+        for (int i = 0; i < len;)
+        {
+            int uniform = i + 8 <= len ? uniform((long) LONGS.get(b, i)) : -1;
+            if (uniform == PRINTABLE || uniform == ZERO)
+            {
+                n = to(cur, uniform, a, n, sw);
+                cur = uniform;
+                if (uniform == ZERO)
+                    for (int k = 0; k < 8; k++)
+                        a[n++] = '.';
+                else
+                    for (int k = 0; k < 8; k++)
+                        a[n++] = b[i + k];
+                i += 8;
+                continue;
+            }
+            int v = b[i] & 0xFF;
+            n = to(cur, CLASS[v], a, n, sw);
+            cur = CLASS[v];
+            a[n++] = CLASS[v] == PRINTABLE ? (byte) v : (byte) '.';
+            i++;
+        }
+        n = to(cur, NONE, a, n, sw);
+        a[n++] = '|';
+        a[n++] = '\n';
+        out.n = n;
+    }
+
+    private void offset(long offset, use_Bytes out, byte[][] sw)
+    {
+        if (sw != null)
+            out.put(offset_style.sgr_bytes());
+        for (int shift = 28; shift >= 0; shift -= 4)
+            out.put(HEX[(int) ((offset >>> shift) & 0xF) << 1 | 1]);
+        if (sw != null && offset_style != jm_AnsiStyle.NONE)
+            out.utf8(jm_Ansi.reset());
+    }
+
+    /**
+     * Classifies 8 bytes at once.
+     *
+     * @return the class shared by all 8 bytes when that is {@link #ZERO} or
+     *         {@link #PRINTABLE}, -1 otherwise
+     */
+    static int uniform(long w)
+    {
+        if (w == 0L)
+            return ZERO;
+        if ((w & HIGHS) != 0)
+            return -1;
+        // no high bits so per byte math cannot carry into the neighbour
+        boolean all_space_or_more = (((w | HIGHS) - 0x20 * ONES) & HIGHS) == HIGHS;
+        boolean none_del = ((w + ONES) & HIGHS) == 0;
+        return all_space_or_more && none_del ? PRINTABLE : -1;
+    }
+
+    private static int to(int cur, int cls, byte[] a, int n, byte[][] sw)
+    {
+        if (cur == cls || sw == null)
+            return n;
+        byte[] code = sw[cur * 5 + cls];
+        System.arraycopy(code, 0, a, n, code.length);
+        return n + code.length;
+    }
+
+    private static int max_switch(byte[][] sw)
+    {
+        int max = 0;
+        for (byte[] code : sw)
+            max = Math.max(max, code.length);
+        return max;
+    }
+
+    private byte[][] switches()
+    {
+        byte[][] sw = switches;
+        if (sw == null)
+        {
+            sw = new byte[25][];
+            StringBuilder sb = new StringBuilder();
+            for (int from = 0; from < 5; from++)
+                for (int to = 0; to < 5; to++)
+                {
+                    sb.setLength(0);
+                    use_Sgr.diff(styles[from].packed(), styles[to].packed(), sb);
+                    sw[from * 5 + to] = sb.toString().getBytes(StandardCharsets.US_ASCII);
+                }
+            switches = sw;
+        }
+        return sw;
+    }
+}
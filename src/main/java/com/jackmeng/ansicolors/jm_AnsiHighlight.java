@@ -0,0 +1,418 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <h2>jm_AnsiHighlight - Keyword and pattern highlighting</h2>
+ * <p>
+ * Highlights every occurrence of a set of keywords and regular expressions in
+ * plain text, each with its own {@link jm_AnsiStyle}. All keywords are
+ * compiled into a single Aho-Corasick automaton and all regular expressions
+ * into a single alternation, so a line is only walked once no matter how many
+ * rules there are:
+ *
+ * <pre>
+ * static final jm_AnsiHighlight LOG = jm_AnsiHighlight.make()
+ *     .keywords(jm_Ansi.make().bold().red().style(), "ERROR", "FATAL")
+ *     .keyword("WARN", jm_Ansi.make().yellow().style())
+ *     .regex("req-[0-9a-f]{8}", jm_Ansi.make().cyan().style());
+ * ...
+ * System.out.println(LOG.highlight(line));
+ * </pre>
+ * </p>
+ * <p>
+ * When matches overlap, the one that starts first wins and between matches
+ * starting at the same spot the longest wins.
+ * </p>
+ * <p>
+ * Rules are meant to be set up once. The first call to
+ * {@link #highlight(CharSequence)} (or {@link #compile()}) builds the
+ * automaton, after that highlighting is thread safe. Adding a rule afterwards
+ * simply causes a rebuild on the next use.
+ * </p>
+ *
+ * @author Jack Meng
+ * @see jm_AnsiStyle
+ */
+public final class jm_AnsiHighlight
+{
+    /**
+     * @return An empty highlighter to add rules to
+     */
+    public static jm_AnsiHighlight make()
+    {
+        return new jm_AnsiHighlight();
+    }
+
+    private final Map<String, jm_AnsiStyle> words = new LinkedHashMap<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<jm_AnsiStyle> pattern_styles = new ArrayList<>();
+    private boolean ignore_case, whole_words;
+
+    private volatile _compiled compiled;
+
+    private jm_AnsiHighlight()
+    {
+    }
+
+    /**
+     * Highlight every occurrence of a word
+     *
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiHighlight keyword(String word, jm_AnsiStyle style)
+    {
+        if (word.isEmpty())
+            throw new IllegalArgumentException("Keywords cannot be empty");
+        words.put(word, Objects.requireNonNull(style));
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Highlight every occurrence of any of the words with the same style
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiHighlight keywords(jm_AnsiStyle style, String... words)
+    {
+        for (String w : words)
+            keyword(w, style);
+        return this;
+    }
+
+    /**
+     * Highlight every match of a regular expression. Empty matches are ignored.
+     * <p>
+     * All expressions are joined into one, so numbered back references
+     * ({@code \1}) will not point where you expect them to. Use named groups
+     * with unique names instead. {@link Pattern#CANON_EQ} cannot be carried
+     * over into the joined expression and is rejected.
+     * </p>
+     *
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiHighlight regex(Pattern pattern, jm_AnsiStyle style)
+    {
+        if ((pattern.flags() & Pattern.CANON_EQ) != 0)
+            throw new IllegalArgumentException("CANON_EQ is not supported: " + pattern);
+        patterns.add(Objects.requireNonNull(pattern));
+        pattern_styles.add(Objects.requireNonNull(style));
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * @see #regex(Pattern, jm_AnsiStyle)
+     */
+    public jm_AnsiHighlight regex(String pattern, jm_AnsiStyle style)
+    {
+        return regex(Pattern.compile(pattern), style);
+    }
+
+    /**
+     * Keywords match regardless of case. Has no effect on regular expressions,
+     * use {@link Pattern#CASE_INSENSITIVE} for those.
+     *
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiHighlight ignore_case()
+    {
+        ignore_case = true;
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Keywords only match when not surrounded by letters, digits or
+     * {@code _}. Has no effect on regular expressions, use {@code \b} for those.
+     *
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiHighlight whole_words()
+    {
+        whole_words = true;
+        compiled = null;
+        return this;
+    }
+
+    /**
+     * Builds the matchers now instead of on first use.
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiHighlight compile()
+    {
+        compiled();
+        return this;
+    }
+
+    /**
+     * @param text
+     *          Plain text to highlight
+     * @return The highlighted text
+     */
+    public String highlight(CharSequence text)
+    {
+        return highlight(text, 0, text.length(), new StringBuilder(text.length() + 32)).toString();
+    }
+
+    /**
+     * Same as {@link #highlight(CharSequence)} but appends to an existing
+     * buffer.
+     *
+     * @return {@code out}
+     */
+    public StringBuilder highlight(CharSequence text, StringBuilder out)
+    {
+        return highlight(text, 0, text.length(), out);
+    }
+
+    /**
+     * Highlights {@code text[start, end)} into {@code out}. If
+     * {@link jm_Ansi#use_ansi()} is off, the text is appended as is.
+     *
+     * @return {@code out}
+     */
+    public StringBuilder highlight(CharSequence text, int start, int end, StringBuilder out)
+    {
+        _compiled c = compiled();
+        if (!jm_Ansi.use_ansi() || c.ac == null && c.regex == null)
+            return out.append(text, start, end);
+        new _pass(c, text, end, out).run(start);
+        return out;
+    }
+
+    private _compiled compiled()
+    {
+        _compiled c = compiled;
+        if (c == null)
+            synchronized (this)
+            {
+                if ((c = compiled) == null)
+                    compiled = c = new _compiled(this);
+            }
+        return c;
+    }
+
+    /**
+     * Immutable snapshot of the rules
+     */
+    private static final class _compiled
+    {
+        final use_AhoCorasick ac;
+        final jm_AnsiStyle[] word_styles;
+        final boolean whole_words;
+        final Pattern regex;
+        final int[] groups; // capture group of each expression in the joined pattern
+        final jm_AnsiStyle[] regex_styles;
+
+        _compiled(jm_AnsiHighlight h)
+        {
+            String[] w = h.words.keySet().toArray(new String[0]);
+            this.ac = w.length == 0 ? null : new use_AhoCorasick(w, h.ignore_case);
+            this.word_styles = h.words.values().toArray(new jm_AnsiStyle[0]);
+            this.whole_words = h.whole_words;
+            this.regex_styles = h.pattern_styles.toArray(new jm_AnsiStyle[0]);
+            this.groups = new int[regex_styles.length];
+            if (groups.length == 0)
+                this.regex = null;
+            else
+            {
+                StringBuilder joined = new StringBuilder();
+                int group = 1;
+                for (int i = 0; i < groups.length; i++)
+                {
+                    Pattern p = h.patterns.get(i);
+                    if (i > 0)
+                        joined.append('|');
+                    int flags = p.flags();
+                    joined.append('(').append(inline_flags(flags));
+                    if ((flags & Pattern.LITERAL) != 0)
+                        joined.append(Pattern.quote(p.pattern()));
+                    else
+                        joined.append(p.pattern());
+                    // a trailing comment would swallow the closing parentheses
+                    if ((flags & (Pattern.COMMENTS | Pattern.LITERAL)) == Pattern.COMMENTS)
+                        joined.append('\n');
+                    joined.append("))");
+                    groups[i] = group;
+                    group += 1 + p.matcher("").groupCount();
+                }
+                this.regex = Pattern.compile(joined.toString());
+            }
+        }
+
+        /**
+         * @return The flags as an inline group, only case folding is kept for
+         *         {@link Pattern#LITERAL} the same as {@link Pattern} does
+         */
+        private static String inline_flags(int flags)
+        {
+            if ((flags & Pattern.LITERAL) != 0)
+                flags &= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+            StringBuilder sb = new StringBuilder("(?");
+            if ((flags & Pattern.CASE_INSENSITIVE) != 0)
+                sb.append('i');
+            if ((flags & Pattern.MULTILINE) != 0)
+                sb.append('m');
+            if ((flags & Pattern.DOTALL) != 0)
+                sb.append('s');
+            if ((flags & Pattern.UNICODE_CASE) != 0)
+                sb.append('u');
+            if ((flags & Pattern.COMMENTS) != 0)
+                sb.append('x');
+            if ((flags & Pattern.UNIX_LINES) != 0)
+                sb.append('d');
+            if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0)
+                sb.append('U');
+            return sb.length() == 2 ? "(?:" : sb.append(':').toString();
+        }
+    }
+
+    /**
+     * State of a single highlight call, merges the keyword and regex matches
+     * in order of position.
+     */
+    private static final class _pass
+    {
+        final _compiled c;
+        final CharSequence text;
+        final int end;
+        final StringBuilder out;
+        final Matcher m;
+        int pos; // everything before this has been written
+        int rs = -1, re, rid; // next regex match, rs == -1 for none
+
+        _pass(_compiled c, CharSequence text, int end, StringBuilder out)
+        {
+            this.c = c;
+            this.text = text;
+            this.end = end;
+            this.out = out;
+            this.m = c.regex == null ? null : c.regex.matcher(text);
+        }
+
+        void run(int start)
+        {
+            pos = start;
+            find_regex(start);
+            if (c.ac != null && end > start)
+            {
+                use_AhoCorasick ac = c.ac;
+                // longest match so far of every start that can still be picked, a ring
+                // indexed by start as they all lie within the last max_len characters
+                int r = Math.min(ac.max_len, end - start);
+                int[] starts = new int[r], ends = new int[r], ids = new int[r];
+                Arrays.fill(starts, -1);
+                int state = 0, cs = -1; // cs: start of the leftmost pending match
+                for (int i = start;; i++)
+                {
+                    while (cs != -1 && (i == end || i - ac.max_len + 1 > cs))
+                    {
+                        // nothing starting before it can still end, so it is the one to take and
+                        // the next pick is the leftmost pending match past what was written
+                        int k = cs % r;
+                        keyword(cs, ends[k], ids[k]);
+                        cs = -1;
+                        for (int s = pos; s < i && cs == -1; s++)
+                            if (starts[s % r] == s)
+                                cs = s;
+                    }
+                    if (i == end)
+                        break;
+                    state = ac.step(state, text.charAt(i));
+                    for (int s = ac.first(state); s != -1; s = ac.next(s))
+                    {
+                        int ms = i + 1 - ac.length(s), k = ms % r;
+                        if (ms < pos || c.whole_words && !bounded(ms, i + 1))
+                            continue;
+                        if (starts[k] != ms || i + 1 > ends[k])
+                        {
+                            starts[k] = ms;
+                            ends[k] = i + 1;
+                            ids[k] = ac.id(s);
+                        }
+                        if (cs == -1 || ms < cs)
+                            cs = ms;
+                    }
+                }
+            }
+            while (rs != -1)
+            {
+                styled(rs, re, c.regex_styles[rid]);
+                find_regex(re);
+            }
+            out.append(text, pos, end);
+        }
+
+        private void keyword(int ks, int ke, int id)
+        {
+            // regex matches that come first (or start together and are longer) go first
+            while (rs != -1 && (rs < ks || rs == ks && re > ke))
+            {
+                styled(rs, re, c.regex_styles[rid]);
+                find_regex(re);
+            }
+            if (ks >= pos)
+            {
+                styled(ks, ke, c.word_styles[id]);
+                if (rs != -1 && rs < pos)
+                    find_regex(pos);
+            }
+        }
+
+        private void styled(int s, int e, jm_AnsiStyle style)
+        {
+            out.append(text, pos, s);
+            if (style == jm_AnsiStyle.NONE)
+                out.append(text, s, e);
+            else
+                out.append(style.sgr()).append(text, s, e).append(jm_Ansi.reset());
+            pos = e;
+        }
+
+        private void find_regex(int from)
+        {
+            rs = -1;
+            if (m == null || from >= end)
+                return;
+            m.region(from, end);
+            while (m.find())
+            {
+                if (m.end() == m.start())
+                {
+                    if (m.end() >= end)
+                        return;
+                    m.region(m.end() + 1, end);
+                    continue;
+                }
+                rs = m.start();
+                re = m.end();
+                rid = 0;
+                while (rid < c.groups.length - 1 && m.start(c.groups[rid]) == -1)
+                    rid++;
+                return;
+            }
+        }
+
+        private boolean bounded(int s, int e)
+        {
+            return (s == 0 || !word_char(text.charAt(s - 1))) && (e >= text.length() || !word_char(text.charAt(e)));
+        }
+
+        private static boolean word_char(char c)
+        {
+            return c == '_' || Character.isLetterOrDigit(c);
+        }
+    }
+}
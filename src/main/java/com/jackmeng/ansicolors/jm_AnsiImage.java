@@ -0,0 +1,267 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <h2>jm_AnsiImage - Pictures made of half blocks</h2>
+ * <p>
+ * Draws an image with one upper half block (U+2580) per two pixels stacked on
+ * top of each other, the upper one as the foreground color and the lower one
+ * as the background, so a 200x100 image takes 200x50 cells:
+ *
+ * <pre>
+ * jm_AnsiImage.make().print(ImageIO.read(file), System.out);
+ * jm_AnsiImage.make().colors(256).dither(true).print(thumbnail, System.out);
+ * </pre>
+ * </p>
+ * <p>
+ * Rows of cells are rendered in parallel straight into bytes and a color is
+ * only written when it differs from the cell to its left. Pixels with an alpha
+ * under 128 are left transparent (the terminal's own background). Every line
+ * ends in the default style.
+ * </p>
+ * <p>
+ * Truecolor by default. With {@link #colors(int)} set to 256 or 16 every pixel
+ * is mapped to the nearest palette color, {@link #dither(boolean)} spreads the
+ * error over its neighbors (Floyd-Steinberg) for smoother gradients. Dithering
+ * runs over the whole image before the parallel part since each pixel depends
+ * on the ones before it.
+ * </p>
+ * Nothing is drawn if {@link jm_Ansi#use_ansi()} is off.
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiImage
+{
+    /**
+     * @return A truecolor renderer without dithering on the common pool
+     */
+    public static jm_AnsiImage make()
+    {
+        return new jm_AnsiImage();
+    }
+
+    private static final byte[] UPPER = "\u2580".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOWER = "\u2584".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Cell rows per task, fewer would spend more on forking than on rendering
+     */
+    private static final int BAND = 8;
+
+    private int colors = 1 << 24;
+    private boolean dither;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private jm_AnsiImage()
+    {
+    }
+
+    /**
+     * @param colors
+     *          16, 256 or anything above for truecolor
+     * @return Instance for cascading
+     */
+    public jm_AnsiImage colors(int colors)
+    {
+        if (colors != 16 && colors != 256 && colors <= 256)
+            throw new IllegalArgumentException("Colors must be 16, 256 or truecolor, not " + colors);
+        this.colors = colors;
+        return this;
+    }
+
+    /**
+     * @param dither
+     *          Whether to dither when {@link #colors(int)} is 16 or 256, ignored
+     *          for truecolor
+     * @return Instance for cascading
+     */
+    public jm_AnsiImage dither(boolean dither)
+    {
+        this.dither = dither;
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiImage pool(ForkJoinPool pool)
+    {
+        this.pool = Objects.requireNonNull(pool);
+        return this;
+    }
+
+    /**
+     * @return The image as UTF-8 text, one line per two rows of pixels
+     */
+    public byte[] render(BufferedImage image)
+    {
+        int w = image.getWidth(), h = image.getHeight();
+        return render(image.getRGB(0, 0, w, h, null, 0, w), w, h);
+    }
+
+    /**
+     * @param argb
+     *          Pixels row by row as {@code 0xAARRGGBB}, not modified
+     * @return The image as UTF-8 text, one line per two rows of pixels
+     */
+    public byte[] render(int[] argb, int width, int height)
+    {
+        if (width < 0 || height < 0 || (long) width * height > argb.length)
+            throw new IllegalArgumentException("Image of " + width + "x" + height + " with " + argb.length + " pixels");
+        if (!jm_Ansi.use_ansi() || width == 0 || height == 0)
+            return new byte[0];
+        int[] px = dither && colors <= 256 ? dithered(argb, width, height) : null;
+        int lines = (height + 1) >> 1, bands = (lines + BAND - 1) / BAND;
+        use_Bytes[] out = new use_Bytes[bands];
+        use_Parallel.each(pool, bands, k -> {
+            use_Bytes b = new use_Bytes(width * 24 * BAND);
+            for (int y = k * BAND, end = Math.min(lines, y + BAND); y < end; y++)
+                line(argb, px, width, height, y, b);
+            out[k] = b;
+        });
+        int total = 0;
+        for (use_Bytes b : out)
+            total += b.n;
+        byte[] r = new byte[total];
+        for (int k = 0, at = 0; k < bands; at += out[k++].n)
+            System.arraycopy(out[k].a, 0, r, at, out[k].n);
+        return r;
+    }
+
+    /**
+     * @throws UncheckedIOException
+     *           if {@code out} fails
+     */
+    public void print(BufferedImage image, OutputStream out)
+    {
+        try
+        {
+            out.write(render(image));
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The image as text, one line per two rows of pixels
+     */
+    public String toString(BufferedImage image)
+    {
+        return new String(render(image), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The color to draw a pixel with, {@link use_Sgr#COLOR_DEFAULT} if
+     *         it is transparent
+     */
+    private int color(int argb)
+    {
+        if (argb >>> 24 < 128)
+            return use_Sgr.COLOR_DEFAULT;
+        int c = use_Sgr.COLOR_RGB | argb & 0xFFFFFF;
+        return colors > 256 ? c : use_Sgr.downsample(c, colors);
+    }
+
+    private void line(int[] argb, int[] px, int w, int h, int y, use_Bytes out)
+    {
+        int top_row = 2 * y * w, bottom_row = top_row + w;
+        boolean has_bottom = 2 * y + 1 < h;
+        int fg = use_Sgr.COLOR_DEFAULT, bg = use_Sgr.COLOR_DEFAULT;
+        for (int x = 0; x < w; x++)
+        {
+            int top = px != null ? px[top_row + x] : color(argb[top_row + x]);
+            int bottom = !has_bottom ? use_Sgr.COLOR_DEFAULT : px != null ? px[bottom_row + x] : color(argb[bottom_row + x]);
+            byte[] glyph = UPPER;
+            int want_fg = top, want_bg = bottom;
+            if (top == use_Sgr.COLOR_DEFAULT)
+            {
+                glyph = bottom == use_Sgr.COLOR_DEFAULT ? null : LOWER;
+                want_fg = glyph == null ? fg : bottom; // a space does not care about the foreground
+                want_bg = use_Sgr.COLOR_DEFAULT;
+            }
+            if (want_fg != fg || want_bg != bg)
+            {
+                out.ascii('\033').ascii('[');
+                if (want_fg != fg)
+                    out.color(want_fg, false);
+                if (want_bg != bg)
+                    (want_fg != fg ? out.ascii(';') : out).color(want_bg, true);
+                out.ascii('m');
+                fg = want_fg;
+                bg = want_bg;
+            }
+            if (glyph == null)
+                out.ascii(' ');
+            else
+                out.put(glyph);
+        }
+        if (fg != use_Sgr.COLOR_DEFAULT || bg != use_Sgr.COLOR_DEFAULT)
+            out.utf8("\033[0m");
+        out.ascii('\n');
+    }
+
+    /**
+     * Floyd-Steinberg over the whole image, errors are kept in sixteenths
+     *
+     * @return Palette colors per pixel
+     */
+    private int[] dithered(int[] argb, int w, int h)
+    {
+        int[] px = new int[w * h];
+        int[] cur = new int[(w + 2) * 3], next = new int[(w + 2) * 3];
+        for (int y = 0; y < h; y++)
+        {
+            for (int x = 0; x < w; x++)
+            {
+                int p = argb[y * w + x];
+                if (p >>> 24 < 128)
+                {
+                    px[y * w + x] = use_Sgr.COLOR_DEFAULT;
+                    continue;
+                }
+                int e = (x + 1) * 3;
+                int r = clamp((p >>> 16 & 0xFF) + (cur[e] >> 4));
+                int g = clamp((p >>> 8 & 0xFF) + (cur[e + 1] >> 4));
+                int b = clamp((p & 0xFF) + (cur[e + 2] >> 4));
+                int c = use_Sgr.downsample(use_Sgr.COLOR_RGB | r << 16 | g << 8 | b, colors);
+                px[y * w + x] = c;
+                int q = use_Sgr.to_rgb(c);
+                spread(r - (q >>> 16), e, cur, next);
+                spread(g - (q >>> 8 & 0xFF), e + 1, cur, next);
+                spread(b - (q & 0xFF), e + 2, cur, next);
+            }
+            int[] t = cur;
+            cur = next;
+            next = t;
+            Arrays.fill(next, 0);
+        }
+        return px;
+    }
+
+    /**
+     * 7/16 right, 3/16 below left, 5/16 below, 1/16 below right
+     */
+    private static void spread(int err, int i, int[] cur, int[] next)
+    {
+        cur[i + 3] += err * 7;
+        next[i - 3] += err * 3;
+        next[i] += err * 5;
+        next[i + 3] += err;
+    }
+
+    private static int clamp(int v)
+    {
+        return v < 0 ? 0 : v > 255 ? 255 : v;
+    }
+}
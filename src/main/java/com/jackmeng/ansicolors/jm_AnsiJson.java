@@ -0,0 +1,607 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiJson - JSON and key=value colorizing</h2>
+ * <p>
+ * Colors JSON documents (and {@code key=value} log lines) token by token
+ * without building anything in memory. The lexer is hand written, walks the
+ * input once and only ever holds a fixed size output buffer plus one flag per
+ * nesting level, so a multi megabyte document streamed from a {@link Reader}
+ * costs about the same memory as a tiny one:
+ *
+ * <pre>
+ * jm_AnsiJson.make().pretty(2).colorize(new FileReader("dump.json"), System.out);
+ * </pre>
+ * </p>
+ * <p>
+ * Every token kind has a precompiled {@link jm_AnsiStyle} that can be
+ * replaced. Escape codes are only written when the style actually changes, so
+ * a run of punctuation and whitespace costs nothing extra.
+ * </p>
+ * <p>
+ * The lexer is lenient: anything that is not valid JSON is passed through
+ * unstyled instead of failing.
+ * </p>
+ *
+ * @author Jack Meng
+ * @see jm_AnsiStyle
+ */
+public final class jm_AnsiJson
+{
+    private static final int PLAIN = 0, KEY = 1, STRING = 2, ESCAPE = 3, NUMBER = 4, LITERAL = 5, PUNCT = 6;
+
+    /**
+     * Longest bare word kept while deciding if it is a key in
+     * {@link #colorize_kv(Reader, Appendable)}. Longer words are written plain.
+     */
+    private static final int KV_WORD = 256;
+
+    private static final int BUFFER = 8192;
+
+    /**
+     * @return A colorizer with the default styles
+     */
+    public static jm_AnsiJson make()
+    {
+        return new jm_AnsiJson();
+    }
+
+    private final long[] styles = new long[7];
+    private int indent = -1;
+
+    private jm_AnsiJson()
+    {
+        styles[KEY] = jm_AnsiStyle.of(1, 34).packed();
+        styles[STRING] = jm_AnsiStyle.of(32).packed();
+        styles[ESCAPE] = jm_AnsiStyle.of(36).packed();
+        styles[NUMBER] = jm_AnsiStyle.of(33).packed();
+        styles[LITERAL] = jm_AnsiStyle.of(35).packed();
+    }
+
+    /**
+     * Style for object keys (and the keys in key=value text)
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson key(jm_AnsiStyle style)
+    {
+        return style(KEY, style);
+    }
+
+    /**
+     * Style for string values
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson string(jm_AnsiStyle style)
+    {
+        return style(STRING, style);
+    }
+
+    /**
+     * Style for escapes inside of strings like {@code \n} or {@code \"}
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson escape(jm_AnsiStyle style)
+    {
+        return style(ESCAPE, style);
+    }
+
+    /**
+     * Style for numbers
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson number(jm_AnsiStyle style)
+    {
+        return style(NUMBER, style);
+    }
+
+    /**
+     * Style for {@code true}, {@code false} and {@code null}
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson literal(jm_AnsiStyle style)
+    {
+        return style(LITERAL, style);
+    }
+
+    /**
+     * Style for {@code { } [ ] : ,} and {@code =}
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson punctuation(jm_AnsiStyle style)
+    {
+        return style(PUNCT, style);
+    }
+
+    /**
+     * Re-indent JSON while coloring it. Whitespace from the input is dropped
+     * and every member goes on its own line. Has no effect on key=value text.
+     *
+     * @param indent
+     *          spaces per nesting level, {@code -1} to keep the input layout
+     *          (default)
+     * @return Instance for cascading
+     */
+    public jm_AnsiJson pretty(int indent)
+    {
+        this.indent = indent < 0 ? -1 : indent;
+        return this;
+    }
+
+    private jm_AnsiJson style(int kind, jm_AnsiStyle style)
+    {
+        styles[kind] = Objects.requireNonNull(style).packed();
+        return this;
+    }
+
+    /**
+     * @param json
+     *          JSON text
+     * @return The colored JSON
+     */
+    public String colorize(CharSequence json)
+    {
+        StringBuilder sb = new StringBuilder(json.length() + (json.length() >> 1));
+        colorize(json, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Colors JSON text into {@code out}. {@link IOException}s from {@code out}
+     * are rethrown as {@link UncheckedIOException}.
+     */
+    public void colorize(CharSequence json, Appendable out)
+    {
+        _lexer l = new _lexer(out);
+        for (int i = 0, n = json.length(); i < n; i++)
+            l.json(json.charAt(i));
+        l.finish();
+    }
+
+    /**
+     * Colors JSON read from {@code in} into {@code out}. The reader is read to
+     * the end but not closed.
+     */
+    public void colorize(Reader in, Appendable out) throws IOException
+    {
+        _lexer l = new _lexer(out);
+        char[] chunk = new char[BUFFER];
+        for (int n; (n = in.read(chunk)) != -1;)
+            for (int i = 0; i < n; i++)
+                l.json(chunk[i]);
+        l.finish();
+    }
+
+    /**
+     * @param text
+     *          {@code key=value} text like {@code user=bob status=200 msg="not found"}
+     * @return The colored text
+     */
+    public String colorize_kv(CharSequence text)
+    {
+        StringBuilder sb = new StringBuilder(text.length() + (text.length() >> 1));
+        colorize_kv(text, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Colors {@code key=value} text into {@code out}. Values are classified as
+     * numbers, literals or strings the same way JSON values are.
+     */
+    public void colorize_kv(CharSequence text, Appendable out)
+    {
+        _lexer l = new _lexer(out);
+        for (int i = 0, n = text.length(); i < n; i++)
+            l.kv(text.charAt(i));
+        l.finish();
+    }
+
+    /**
+     * Colors {@code key=value} text read from {@code in} into {@code out}. The
+     * reader is read to the end but not closed.
+     */
+    public void colorize_kv(Reader in, Appendable out) throws IOException
+    {
+        _lexer l = new _lexer(out);
+        char[] chunk = new char[BUFFER];
+        for (int n; (n = in.read(chunk)) != -1;)
+            for (int i = 0; i < n; i++)
+                l.kv(chunk[i]);
+        l.finish();
+    }
+
+    private static boolean number_char(char c)
+    {
+        return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private static boolean literal_char(char c)
+    {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean space(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * State of a single colorize call
+     */
+    private final class _lexer
+    {
+        private static final int TOKEN_NONE = 0, TOKEN_STRING = 1, TOKEN_STRING_ESC = 2, TOKEN_UNICODE = 3, TOKEN_NUMBER = 4,
+                TOKEN_LITERAL = 5, TOKEN_WORD = 6, TOKEN_VALUE = 7;
+
+        final Appendable out;
+        final StringBuilder buf = new StringBuilder(BUFFER + 64);
+        final boolean color = jm_Ansi.use_ansi();
+        long current;
+
+        int token = TOKEN_NONE;
+        int string_kind; // KEY or STRING for the open string
+        int hex_left;
+
+        // json nesting, true = object
+        boolean[] stack = new boolean[16];
+        int depth;
+        boolean expect_key, open_pending;
+
+        // key=value words
+        final char[] word = new char[KV_WORD];
+        int word_n;
+        boolean word_overflow;
+
+        _lexer(Appendable out)
+        {
+            this.out = out;
+        }
+
+        void json(char c)
+        {
+            switch (token)
+            {
+                case TOKEN_STRING:
+                    if (c == '\\')
+                    {
+                        to(ESCAPE);
+                        token = TOKEN_STRING_ESC;
+                    }
+                    else
+                    {
+                        to(string_kind);
+                        if (c == '"')
+                            token = TOKEN_NONE;
+                    }
+                    put(c);
+                    return;
+                case TOKEN_STRING_ESC:
+                    put(c);
+                    if (c == 'u')
+                    {
+                        token = TOKEN_UNICODE;
+                        hex_left = 4;
+                    }
+                    else
+                        token = TOKEN_STRING;
+                    return;
+                case TOKEN_UNICODE:
+                    if (hex(c))
+                    {
+                        put(c);
+                        if (--hex_left == 0)
+                            token = TOKEN_STRING;
+                        return;
+                    }
+                    token = TOKEN_STRING; // malformed, carry on as part of the string
+                    json(c);
+                    return;
+                case TOKEN_NUMBER:
+                    if (number_char(c))
+                    {
+                        put(c);
+                        return;
+                    }
+                    token = TOKEN_NONE;
+                    break;
+                case TOKEN_LITERAL:
+                    if (literal_char(c))
+                    {
+                        put(c);
+                        return;
+                    }
+                    token = TOKEN_NONE;
+                    break;
+                default:
+                    break;
+            }
+            if (space(c))
+            {
+                if (indent < 0)
+                    whitespace(c);
+                return;
+            }
+            switch (c)
+            {
+                case '{':
+                case '[':
+                    value_start();
+                    to(PUNCT);
+                    put(c);
+                    push(c == '{');
+                    expect_key = c == '{';
+                    open_pending = indent >= 0;
+                    return;
+                case '}':
+                case ']':
+                    if (depth > 0)
+                        depth--;
+                    if (open_pending)
+                        open_pending = false;
+                    else
+                        newline();
+                    to(PUNCT);
+                    put(c);
+                    expect_key = false;
+                    return;
+                case ',':
+                    to(PUNCT);
+                    put(c);
+                    expect_key = depth > 0 && stack[depth - 1];
+                    newline();
+                    return;
+                case ':':
+                    to(PUNCT);
+                    put(c);
+                    expect_key = false;
+                    if (indent >= 0)
+                        whitespace(' ');
+                    return;
+                case '"':
+                    value_start();
+                    string_kind = expect_key ? KEY : STRING;
+                    expect_key = false;
+                    to(string_kind);
+                    put(c);
+                    token = TOKEN_STRING;
+                    return;
+                default:
+                    value_start();
+                    expect_key = false;
+                    if (number_char(c))
+                    {
+                        to(NUMBER);
+                        token = TOKEN_NUMBER;
+                    }
+                    else if (literal_char(c))
+                    {
+                        to(LITERAL);
+                        token = TOKEN_LITERAL;
+                    }
+                    else
+                        to(PLAIN);
+                    put(c);
+            }
+        }
+
+        void kv(char c)
+        {
+            if (token == TOKEN_STRING || token == TOKEN_STRING_ESC)
+            {
+                if (token == TOKEN_STRING_ESC)
+                {
+                    put(c); // still in the escape style
+                    token = TOKEN_STRING;
+                    return;
+                }
+                if (c == '\\')
+                {
+                    to(ESCAPE);
+                    put(c);
+                    token = TOKEN_STRING_ESC;
+                    return;
+                }
+                else if (c == '"')
+                    token = TOKEN_NONE;
+                to(STRING);
+                put(c);
+                return;
+            }
+            if (token == TOKEN_VALUE)
+            {
+                if (c == '"' && word_n == 0 && !word_overflow)
+                {
+                    to(STRING);
+                    put(c);
+                    token = TOKEN_STRING;
+                    return;
+                }
+                if (!space(c))
+                {
+                    buffer(c);
+                    return;
+                }
+                flush_word(value_kind());
+                token = TOKEN_NONE;
+            }
+            else if (token == TOKEN_WORD)
+            {
+                if (c == '=')
+                {
+                    flush_word(word_overflow ? PLAIN : KEY);
+                    to(PUNCT);
+                    put(c);
+                    token = TOKEN_VALUE;
+                    return;
+                }
+                if (!space(c))
+                {
+                    buffer(c);
+                    return;
+                }
+                flush_word(PLAIN);
+                token = TOKEN_NONE;
+            }
+            if (space(c))
+                whitespace(c);
+            else if (c == '"')
+            {
+                // stray quoted text, not a value
+                to(STRING);
+                put(c);
+                token = TOKEN_STRING;
+            }
+            else
+            {
+                token = TOKEN_WORD;
+                buffer(c);
+            }
+        }
+
+        /**
+         * Holds a bare word back until it is known if it is a key
+         */
+        private void buffer(char c)
+        {
+            if (word_n == KV_WORD)
+            {
+                // too long to be a key, stop holding it back
+                if (!word_overflow)
+                    to(token == TOKEN_VALUE ? STRING : PLAIN);
+                for (int i = 0; i < word_n; i++)
+                    put(word[i]);
+                word_n = 0;
+                word_overflow = true;
+            }
+            word[word_n++] = c;
+        }
+
+        private int value_kind()
+        {
+            if (word_overflow)
+                return STRING;
+            if (word_n > 0 && (word[0] >= '0' && word[0] <= '9' || word[0] == '-' && word_n > 1))
+            {
+                int i = 0;
+                while (i < word_n && number_char(word[i]))
+                    i++;
+                if (i == word_n)
+                    return NUMBER;
+            }
+            if (word_n == 4 && (word[0] == 't' && word[1] == 'r' && word[2] == 'u' && word[3] == 'e' || word[0] == 'n' && word[1] == 'u' && word[2] == 'l' && word[3] == 'l')
+                    || word_n == 5 && word[0] == 'f' && word[1] == 'a' && word[2] == 'l' && word[3] == 's' && word[4] == 'e')
+                return LITERAL;
+            return STRING;
+        }
+
+        private void flush_word(int kind)
+        {
+            if (word_n > 0)
+                to(kind);
+            for (int i = 0; i < word_n; i++)
+                put(word[i]);
+            word_n = 0;
+            word_overflow = false;
+        }
+
+        void finish()
+        {
+            if (token == TOKEN_WORD)
+                flush_word(PLAIN);
+            else if (token == TOKEN_VALUE)
+                flush_word(value_kind());
+            to(PLAIN);
+            drain();
+        }
+
+        private boolean hex(char c)
+        {
+            return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+        }
+
+        private void value_start()
+        {
+            if (open_pending)
+            {
+                open_pending = false;
+                newline();
+            }
+        }
+
+        private void push(boolean object)
+        {
+            if (depth == stack.length)
+                stack = Arrays.copyOf(stack, depth << 1);
+            stack[depth++] = object;
+        }
+
+        private void newline()
+        {
+            if (indent < 0)
+                return;
+            whitespace('\n');
+            for (int i = depth * indent; i > 0; i--)
+                put(' ');
+        }
+
+        /**
+         * Whitespace only changes the style if the current one would be visible
+         * on a blank (background, underline ...)
+         */
+        private void whitespace(char c)
+        {
+            if (c == '\n' && current != 0L)
+            {
+                // lines end in the default style, colors do not run into the indentation
+                use_Sgr.diff(current, 0L, buf);
+                current = 0L;
+            }
+            else if (current != 0L && (use_Sgr.bg(current) != use_Sgr.COLOR_DEFAULT
+                    || (use_Sgr.attrs(current) & (use_Sgr.UNDERLINE | use_Sgr.INVERSE | use_Sgr.STRIKE | use_Sgr.OVERLINED | use_Sgr.FRAMED | use_Sgr.ENCIRCLED)) != 0))
+                to(PLAIN);
+            put(c);
+        }
+
+        private void to(int kind)
+        {
+            long s = styles[kind];
+            if (color && s != current)
+            {
+                use_Sgr.diff(current, s, buf);
+                current = s;
+            }
+        }
+
+        private void put(char c)
+        {
+            buf.append(c);
+            if (buf.length() >= BUFFER)
+                drain();
+        }
+
+        private void drain()
+        {
+            try
+            {
+                out.append(buf);
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            buf.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * <h2>jm_AnsiLazy - Styled text rendered only when used</h2>
+ * <p>
+ * Holds a style and a reference to the payload and does nothing else until
+ * {@link #toString()} or {@link #write_to(StringBuilder)} is called. Passed as
+ * a log argument it costs one small object when the level is disabled, since
+ * logging frameworks only turn arguments into text for records they actually
+ * publish:
+ *
+ * <pre>
+ * static final jm_AnsiStyle ID = jm_AnsiStyle.of(36);
+ * ...
+ * log.debug("loaded {}", ID.lazy(order.id()));
+ * log.debug("state {}", ID.lazy(() -&gt; expensive_dump()));
+ * </pre>
+ * </p>
+ * <p>
+ * The payload is turned into text with {@link String#valueOf(Object)} at the
+ * time of rendering, a {@link Supplier} is called then. What
+ * {@link CharSequence#length()} and {@link #charAt(int)} see is rendered once
+ * and kept (as long as {@link jm_Ansi#use_ansi()} does not change).
+ * </p>
+ *
+ * @author Jack Meng
+ * @see jm_AnsiStyle#lazy(Object)
+ */
+public final class jm_AnsiLazy implements CharSequence
+{
+    /**
+     * @param payload
+     *          Anything, a {@link Supplier} is called when rendering
+     */
+    public static jm_AnsiLazy of(jm_AnsiStyle style, Object payload)
+    {
+        return new jm_AnsiLazy(Objects.requireNonNull(style), payload);
+    }
+
+    public static jm_AnsiLazy of(jm_AnsiStyle style, Supplier<?> payload)
+    {
+        return new jm_AnsiLazy(Objects.requireNonNull(style), payload);
+    }
+
+    /**
+     * A builder whose codes are only read when rendering
+     */
+    static jm_AnsiLazy of(jm_Ansi._ansi builder)
+    {
+        return new jm_AnsiLazy(null, Objects.requireNonNull(builder));
+    }
+
+    private final jm_AnsiStyle style;
+    private final Object payload;
+    private String plain, colored; // racy, at worst a second render
+
+    private jm_AnsiLazy(jm_AnsiStyle style, Object payload)
+    {
+        this.style = style;
+        this.payload = payload;
+    }
+
+    /**
+     * Appends the styled payload without an intermediate String when the
+     * payload is already text
+     *
+     * @return {@code out}
+     */
+    public StringBuilder write_to(StringBuilder out)
+    {
+        if (style == null)
+        {
+            // the builder's own codes, a style would lose the ones it does not know
+            jm_Ansi._ansi b = (jm_Ansi._ansi) payload;
+            CharSequence codes = b.codes();
+            String content = b.content();
+            if (codes.length() == 0 || !jm_Ansi.use_ansi())
+                return out.append(content);
+            if (jm_AnsiMetrics.on)
+                jm_AnsiMetrics.rendered(codes.length() + 7, content.length());
+            return out.append("\033[").append(codes).append('m').append(content).append(jm_Ansi.reset());
+        }
+        Object p = payload instanceof Supplier ? ((Supplier<?>) payload).get() : payload;
+        return style.wrap(p instanceof CharSequence ? (CharSequence) p : String.valueOf(p), out);
+    }
+
+    /**
+     * @throws UncheckedIOException
+     *           if {@code out} fails
+     */
+    public void write_to(Appendable out)
+    {
+        if (out instanceof StringBuilder)
+        {
+            write_to((StringBuilder) out);
+            return;
+        }
+        try
+        {
+            out.append(toString());
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String rendered()
+    {
+        boolean ansi = jm_Ansi.use_ansi();
+        String r = ansi ? colored : plain;
+        if (r == null)
+        {
+            r = write_to(new StringBuilder(32)).toString();
+            if (ansi)
+                colored = r;
+            else
+                plain = r;
+        }
+        return r;
+    }
+
+    @Override public int length()
+    {
+        return rendered().length();
+    }
+
+    @Override public char charAt(int index)
+    {
+        return rendered().charAt(index);
+    }
+
+    @Override public CharSequence subSequence(int start, int end)
+    {
+        return rendered().subSequence(start, end);
+    }
+
+    @Override public String toString()
+    {
+        return rendered();
+    }
+}
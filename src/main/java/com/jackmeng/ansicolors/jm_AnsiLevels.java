@@ -0,0 +1,208 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>jm_AnsiLevels - Precompiled log level styles</h2>
+ * <p>
+ * Maps log level names and MDC keys to styles and builds the colored, padded
+ * level token of every known level once, so a logging layout only has to
+ * append a constant per event instead of making a new {@link jm_Ansi._ansi}.
+ * </p>
+ * <p>
+ * Names from both {@code java.util.logging} ({@code SEVERE}, {@code FINE}
+ * ...) and SLF4J/Logback ({@code ERROR}, {@code DEBUG} ...) are known out of
+ * the box. It is what {@link jm_AnsiLogFormatter} uses and it can back a
+ * Logback converter just as well:
+ *
+ * <pre>
+ * public class AnsiLevelConverter extends ClassicConverter {
+ *     static final jm_AnsiLevels LEVELS = jm_AnsiLevels.make().pad(5);
+ *
+ *     public String convert(ILoggingEvent e) {
+ *         return LEVELS.token(e.getLevel().toString());
+ *     }
+ * }
+ * </pre>
+ * </p>
+ * Lookups never lock, configuring swaps in a new table.
+ *
+ * @author Jack Meng
+ * @see jm_AnsiLogFormatter
+ */
+public final class jm_AnsiLevels
+{
+    /**
+     * @return Levels with the default styles, padded to 7 columns
+     */
+    public static jm_AnsiLevels make()
+    {
+        jm_AnsiStyle error = jm_AnsiStyle.of(1, 31), warn = jm_AnsiStyle.of(33), info = jm_AnsiStyle.of(32),
+                debug = jm_AnsiStyle.of(36), trace = jm_AnsiStyle.of(90);
+        jm_AnsiLevels l = new jm_AnsiLevels();
+        l.styles.put("SEVERE", error);
+        l.styles.put("ERROR", error);
+        l.styles.put("FATAL", error);
+        l.styles.put("WARNING", warn);
+        l.styles.put("WARN", warn);
+        l.styles.put("INFO", info);
+        l.styles.put("CONFIG", debug);
+        l.styles.put("DEBUG", debug);
+        l.styles.put("FINE", debug);
+        l.styles.put("FINER", trace);
+        l.styles.put("FINEST", trace);
+        l.styles.put("TRACE", trace);
+        return l.rebuild();
+    }
+
+    /**
+     * A finished level token, both forms so {@link jm_Ansi#use_ansi()} can be
+     * flipped at any time
+     */
+    static final class _token
+    {
+        final jm_AnsiStyle style;
+        final String plain, colored;
+
+        _token(String plain, jm_AnsiStyle style)
+        {
+            this.style = style;
+            this.plain = plain;
+            this.colored = style == jm_AnsiStyle.NONE ? plain : style.sgr() + plain + jm_Ansi.reset();
+        }
+    }
+
+    private final Map<String, jm_AnsiStyle> styles = new HashMap<>();
+    private final Map<String, jm_AnsiStyle> mdc_styles = new HashMap<>();
+    private int pad = 7;
+
+    /**
+     * Padded tokens of levels without a style, at most this many are kept
+     */
+    private static final int UNKNOWN_MAX = 64;
+
+    private volatile Map<String, _token> tokens = new HashMap<>();
+    private volatile Map<String, jm_AnsiStyle> mdc = new HashMap<>();
+    private volatile Map<String, String> unknown = new ConcurrentHashMap<>();
+
+    private jm_AnsiLevels()
+    {
+    }
+
+    /**
+     * Style of a level, replacing the default one if there is
+     *
+     * @param name
+     *          Level name as the logging framework prints it, case sensitive
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiLevels level(String name, jm_AnsiStyle style)
+    {
+        styles.put(Objects.requireNonNull(name), Objects.requireNonNull(style));
+        return rebuild();
+    }
+
+    /**
+     * Style of the value of an MDC field
+     *
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiLevels mdc(String key, jm_AnsiStyle style)
+    {
+        mdc_styles.put(Objects.requireNonNull(key), Objects.requireNonNull(style));
+        return rebuild();
+    }
+
+    /**
+     * @param width
+     *          Level tokens are padded with spaces to at least this many columns,
+     *          0 to not pad. Default is 7 which fits {@code WARNING}.
+     * @return Instance for cascading
+     */
+    public synchronized jm_AnsiLevels pad(int width)
+    {
+        this.pad = Math.max(0, width);
+        return rebuild();
+    }
+
+    private jm_AnsiLevels rebuild()
+    {
+        Map<String, _token> t = new HashMap<>();
+        for (Map.Entry<String, jm_AnsiStyle> e : styles.entrySet())
+            t.put(e.getKey(), new _token(padded(e.getKey()), e.getValue()));
+        this.tokens = t;
+        this.mdc = new HashMap<>(mdc_styles);
+        this.unknown = new ConcurrentHashMap<>();
+        return this;
+    }
+
+    private String padded(String name)
+    {
+        StringBuilder sb = new StringBuilder(Math.max(pad, name.length())).append(name);
+        while (sb.length() < pad)
+            sb.append(' ');
+        return sb.toString();
+    }
+
+    /**
+     * @return The style of a level, {@link jm_AnsiStyle#NONE} if it is not
+     *         known
+     */
+    public jm_AnsiStyle style(String level)
+    {
+        _token t = tokens.get(level);
+        return t == null ? jm_AnsiStyle.NONE : t.style;
+    }
+
+    /**
+     * The padded and colored level, ready to be appended. Known levels cost a
+     * single map lookup, unknown ones are padded once and then cached too.
+     *
+     * @param level
+     *          Level name
+     * @return The token, plain if {@link jm_Ansi#use_ansi()} is off
+     */
+    public String token(String level)
+    {
+        _token t = tokens.get(level);
+        if (t == null)
+        {
+            Map<String, String> u = unknown;
+            String p = u.get(level);
+            if (p != null)
+                return p;
+            jm_AnsiMetrics.miss("levels", level);
+            p = padded(level);
+            if (u.size() < UNKNOWN_MAX)
+                u.put(level, p);
+            return p;
+        }
+        jm_AnsiMetrics.hit();
+        return jm_Ansi.use_ansi() ? t.colored : t.plain;
+    }
+
+    /**
+     * @return The style of an MDC key, {@link jm_AnsiStyle#NONE} if it has none
+     */
+    public jm_AnsiStyle mdc_style(String key)
+    {
+        jm_AnsiStyle s = mdc.get(key);
+        return s == null ? jm_AnsiStyle.NONE : s;
+    }
+
+    /**
+     * Appends {@code key=value} with the value in the key's style
+     *
+     * @return {@code out}
+     */
+    public StringBuilder mdc(String key, String value, StringBuilder out)
+    {
+        out.append(key).append('=');
+        return mdc_style(key).wrap(value == null ? "null" : value, out);
+    }
+}
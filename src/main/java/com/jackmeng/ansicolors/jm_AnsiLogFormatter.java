@@ -0,0 +1,130 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * <h2>jm_AnsiLogFormatter - Colored java.util.logging output</h2>
+ * <p>
+ * A {@link Formatter} that prints one line per record:
+ *
+ * <pre>
+ * 12:30:01.042 WARNING com.mycorp.Server - Slow request (1204 ms)
+ * </pre>
+ *
+ * The level token comes precompiled from {@link jm_AnsiLevels}, the time of day
+ * is only formatted again when the second changes and everything is appended
+ * into a reused per thread buffer, so a colored record costs about the same as
+ * a plain one. Attached exceptions are rendered with {@link jm_AnsiTrace}.
+ * </p>
+ * <p>
+ * It has a no argument constructor so it can be set from
+ * {@code logging.properties}:
+ *
+ * <pre>
+ * java.util.logging.ConsoleHandler.formatter = com.jackmeng.ansicolors.jm_AnsiLogFormatter
+ * </pre>
+ * </p>
+ *
+ * @author Jack Meng
+ * @see jm_AnsiLevels
+ */
+public class jm_AnsiLogFormatter extends Formatter
+{
+    /**
+     * Buffers bigger than this are not kept around after a record
+     */
+    private static final int KEEP_BUFFER = 1 << 14;
+
+    private static final ThreadLocal<_clock> CLOCKS = ThreadLocal.withInitial(_clock::new);
+
+    private final jm_AnsiLevels levels;
+    private final jm_AnsiTrace trace;
+    private final jm_AnsiStyle logger_style;
+
+    /**
+     * Default levels, default trace renderer and a dim logger name
+     */
+    public jm_AnsiLogFormatter()
+    {
+        this(jm_AnsiLevels.make(), jm_AnsiTrace.make());
+    }
+
+    public jm_AnsiLogFormatter(jm_AnsiLevels levels, jm_AnsiTrace trace)
+    {
+        this(levels, trace, jm_AnsiStyle.of(2));
+    }
+
+    /**
+     * @param levels
+     *          Level styles
+     * @param trace
+     *          Renderer for attached exceptions
+     * @param logger_style
+     *          Style of the logger name
+     */
+    public jm_AnsiLogFormatter(jm_AnsiLevels levels, jm_AnsiTrace trace, jm_AnsiStyle logger_style)
+    {
+        this.levels = Objects.requireNonNull(levels);
+        this.trace = Objects.requireNonNull(trace);
+        this.logger_style = Objects.requireNonNull(logger_style);
+    }
+
+    @Override public String format(LogRecord r)
+    {
+        _clock c = CLOCKS.get();
+        StringBuilder sb = c.buf;
+        sb.setLength(0);
+        c.time(r.getInstant(), sb);
+        sb.append(' ').append(levels.token(r.getLevel().getName())).append(' ');
+        if (r.getLoggerName() != null)
+            logger_style.wrap(r.getLoggerName(), sb).append(" - ");
+        sb.append(formatMessage(r)).append(System.lineSeparator());
+        if (r.getThrown() != null)
+            sb.append(trace.render(r.getThrown()));
+        String s = sb.toString();
+        if (sb.capacity() > KEEP_BUFFER)
+            c.buf = new StringBuilder(256);
+        return s;
+    }
+
+    /**
+     * Per thread buffer plus the last formatted second
+     */
+    private static final class _clock
+    {
+        StringBuilder buf = new StringBuilder(256);
+        long second = Long.MIN_VALUE;
+        final char[] hms = new char[8];
+        final ZoneId zone = ZoneId.systemDefault();
+
+        void time(Instant at, StringBuilder out)
+        {
+            long s = at.getEpochSecond();
+            if (s != second)
+            {
+                LocalTime t = LocalTime.ofInstant(at, zone);
+                two(t.getHour(), 0);
+                hms[2] = ':';
+                two(t.getMinute(), 3);
+                hms[5] = ':';
+                two(t.getSecond(), 6);
+                second = s;
+            }
+            int ms = at.getNano() / 1_000_000;
+            out.append(hms).append('.').append((char) ('0' + ms / 100)).append((char) ('0' + ms / 10 % 10)).append((char) ('0' + ms % 10));
+        }
+
+        private void two(int v, int at)
+        {
+            hms[at] = (char) ('0' + v / 10);
+            hms[at + 1] = (char) ('0' + v % 10);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <h2>jm_AnsiMetrics - What colored output costs</h2>
+ * <p>
+ * Counters for how much styled text this library produced and how long it
+ * took to hand it to its sinks. Off by default, turned on with
+ * {@link #enable(boolean)} or {@code -Djm.ansi.metrics=true}. While off, every
+ * hook is a single read of a static field.
+ *
+ * <pre>
+ * jm_AnsiMetrics.enable(true);
+ * jm_AnsiMetrics.get().register_mbean(); // com.jackmeng.ansicolors:type=Metrics
+ * ...
+ * long escapes = jm_AnsiMetrics.get().getEscapeChars();
+ * </pre>
+ * </p>
+ * <p>
+ * While on, two Flight Recorder events are emitted if a recording has them
+ * enabled: {@code com.jackmeng.ansicolors.SlowWrite} for writes that took
+ * over 10 ms and {@code com.jackmeng.ansicolors.CacheMiss} for style lookups
+ * that had to be built. They are skipped on runtimes without
+ * {@code jdk.jfr}.
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiMetrics implements jm_AnsiMetricsMBean
+{
+    private static final jm_AnsiMetrics INSTANCE = new jm_AnsiMetrics();
+
+    static volatile boolean on = Boolean.getBoolean("jm.ansi.metrics");
+
+    static final boolean JFR = jfr_present();
+
+    private static boolean jfr_present()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event", false, jm_AnsiMetrics.class.getClassLoader());
+            return !Boolean.getBoolean("jm.ansi.nojfr");
+        } catch (ClassNotFoundException | LinkageError e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * @return The process wide counters
+     */
+    public static jm_AnsiMetrics get()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param enabled
+     *          Whether to count, counters keep their values while off
+     */
+    public static void enable(boolean enabled)
+    {
+        on = enabled;
+    }
+
+    public static boolean enabled()
+    {
+        return on;
+    }
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder escape_chars = new LongAdder();
+    private final LongAdder payload_chars = new LongAdder();
+    private final LongAdder bytes_written = new LongAdder();
+    private final LongAdder write_nanos = new LongAdder();
+    private final LongAdder cache_hits = new LongAdder();
+    private final LongAdder cache_misses = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final AtomicLong queue_depth = new AtomicLong();
+
+    private jm_AnsiMetrics()
+    {
+    }
+
+    /**
+     * Registers the counters with the platform MBean server under
+     * {@code com.jackmeng.ansicolors:type=Metrics}, does nothing if they already
+     * are
+     *
+     * @return Instance for cascading
+     * @throws IllegalStateException
+     *           if the server refuses it
+     */
+    public jm_AnsiMetrics register_mbean()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.jackmeng.ansicolors:type=Metrics");
+            if (!server.isRegistered(name))
+                server.registerMBean(this, name);
+        } catch (JMException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return this;
+    }
+
+    // -------- hooks, callers check `on` first where it saves work --------
+
+    static void rendered(int escape, int payload)
+    {
+        if (!on)
+            return;
+        INSTANCE.renders.increment();
+        INSTANCE.escape_chars.add(escape);
+        INSTANCE.payload_chars.add(payload);
+    }
+
+    /**
+     * @return A token for {@link #wrote(Object, long, long, Object)}, null if
+     *         nothing is watching
+     */
+    static Object write_begin()
+    {
+        return on && JFR ? use_Jfr.begin_write() : null;
+    }
+
+    static void wrote(Object token, long start, long bytes, Object sink)
+    {
+        if (token != null)
+            use_Jfr.end_write(token, bytes, sink);
+        if (!on)
+            return;
+        INSTANCE.bytes_written.add(bytes);
+        INSTANCE.write_nanos.add(System.nanoTime() - start);
+    }
+
+    static void hit()
+    {
+        if (on)
+            INSTANCE.cache_hits.increment();
+    }
+
+    static void miss(String cache, Object key)
+    {
+        if (!on)
+            return;
+        if (JFR)
+            use_Jfr.miss(cache, key);
+        INSTANCE.cache_misses.increment();
+    }
+
+    /**
+     * @param delta
+     *          Records queued (positive) or taken out (negative). Callers only
+     *          take out what they put in, so turning metrics off and on again
+     *          does not leave the depth off.
+     */
+    static void queued(int delta)
+    {
+        INSTANCE.queue_depth.addAndGet(delta);
+    }
+
+    static void dropped()
+    {
+        if (on)
+            INSTANCE.drops.increment();
+    }
+
+    // -------- jm_AnsiMetricsMBean --------
+
+    @Override public boolean isEnabled()
+    {
+        return on;
+    }
+
+    @Override public void setEnabled(boolean enabled)
+    {
+        on = enabled;
+    }
+
+    @Override public long getRenders()
+    {
+        return renders.sum();
+    }
+
+    @Override public long getEscapeChars()
+    {
+        return escape_chars.sum();
+    }
+
+    @Override public long getPayloadChars()
+    {
+        return payload_chars.sum();
+    }
+
+    @Override public long getBytesWritten()
+    {
+        return bytes_written.sum();
+    }
+
+    @Override public long getWriteNanos()
+    {
+        return write_nanos.sum();
+    }
+
+    @Override public long getCacheHits()
+    {
+        return cache_hits.sum();
+    }
+
+    @Override public long getCacheMisses()
+    {
+        return cache_misses.sum();
+    }
+
+    @Override public double getCacheHitRate()
+    {
+        long h = cache_hits.sum(), all = h + cache_misses.sum();
+        return all == 0 ? 1D : (double) h / all;
+    }
+
+    @Override public long getQueueDepth()
+    {
+        return queue_depth.get();
+    }
+
+    @Override public long getDrops()
+    {
+        return drops.sum();
+    }
+
+    /**
+     * The queue depth is left alone, it describes records still in flight
+     */
+    @Override public void reset()
+    {
+        renders.reset();
+        escape_chars.reset();
+        payload_chars.reset();
+        bytes_written.reset();
+        write_nanos.reset();
+        cache_hits.reset();
+        cache_misses.reset();
+        drops.reset();
+    }
+
+    @Override public String toString()
+    {
+        return "jm_AnsiMetrics[renders=" + getRenders() + ", escape_chars=" + getEscapeChars() + ", payload_chars="
+                + getPayloadChars() + ", bytes_written=" + getBytesWritten() + ", write_nanos=" + getWriteNanos()
+                + ", cache_hit_rate=" + getCacheHitRate() + ", queue_depth=" + getQueueDepth() + ", drops="
+                + getDrops() + "]";
+    }
+}
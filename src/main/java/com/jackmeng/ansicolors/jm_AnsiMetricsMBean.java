@@ -0,0 +1,70 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+/**
+ * The counters of {@link jm_AnsiMetrics}, named the way JMX expects so they
+ * show up as attributes in JConsole, VisualVM or any JMX exporter.
+ *
+ * @author Jack Meng
+ */
+public interface jm_AnsiMetricsMBean
+{
+    /**
+     * @return Whether counting is on
+     */
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return Pieces of text styled ({@link jm_AnsiStyle#wrap(CharSequence)},
+     *         {@link jm_Ansi._ansi#toString()} ...)
+     */
+    long getRenders();
+
+    /**
+     * @return Characters of escape codes produced by those renders
+     */
+    long getEscapeChars();
+
+    /**
+     * @return Characters of payload produced by those renders
+     */
+    long getPayloadChars();
+
+    /**
+     * @return Bytes handed to output streams and channels by the byte level
+     *         renderers
+     */
+    long getBytesWritten();
+
+    /**
+     * @return Time spent in those writes
+     */
+    long getWriteNanos();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /**
+     * @return {@link #getCacheHits()} over all lookups, 1 when there were none
+     */
+    double getCacheHitRate();
+
+    /**
+     * @return Records currently waiting in asynchronous sinks
+     */
+    long getQueueDepth();
+
+    /**
+     * @return Records asynchronous sinks had to drop
+     */
+    long getDrops();
+
+    /**
+     * Sets every counter but the queue depth back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,248 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiOffHeap - Formatted output too big for the heap</h2>
+ * <p>
+ * Collects formatted text as UTF-8 in direct (off heap) chunks, so a report
+ * of hundreds of megabytes does not need a heap sized for it and is never
+ * copied while growing. A full chunk is simply followed by a new one:
+ *
+ * <pre>
+ * jm_AnsiOffHeap report = jm_AnsiOffHeap.make();
+ * for (Row r : rows)
+ *     report.append(r.failed ? RED : GREEN, r.name).append(" ").append(r.detail).newline();
+ * try (FileChannel ch = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING))
+ * {
+ *     report.write_to(ch);
+ * }
+ * </pre>
+ * </p>
+ * <p>
+ * Styles are tracked as runs, a code is only written when text follows in a
+ * style different from the text before it and then only for what changed.
+ * Text goes through a small staging array on the heap and into the chunks
+ * with bulk copies. {@link #write_to(WritableByteChannel)} hands the chunks
+ * to the channel as they are with a gathering write, nothing is copied back
+ * onto the heap.
+ * </p>
+ * <p>
+ * Whether to write codes at all is decided by {@link jm_Ansi#use_ansi()} when
+ * the buffer is made. Direct memory is given back when the buffer is no
+ * longer referenced, like any other direct {@link ByteBuffer}, and is limited
+ * by {@code -XX:MaxDirectMemorySize} (the heap size unless set).
+ * </p>
+ * <p>
+ * [!] Not thread safe [!]
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiOffHeap
+{
+    /**
+     * @return A buffer growing in chunks of 4 MB
+     */
+    public static jm_AnsiOffHeap make()
+    {
+        return make(4 << 20);
+    }
+
+    /**
+     * @param chunk_bytes
+     *          Size of every direct chunk, at least 4096
+     */
+    public static jm_AnsiOffHeap make(int chunk_bytes)
+    {
+        return new jm_AnsiOffHeap(Math.max(4096, chunk_bytes));
+    }
+
+    private final int chunk_bytes;
+    private final boolean ansi;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final use_Bytes stage = new use_Bytes(8192);
+    private final StringBuilder codes = new StringBuilder(32);
+    private long flushed, style, shown;
+
+    private jm_AnsiOffHeap(int chunk_bytes)
+    {
+        this.chunk_bytes = chunk_bytes;
+        this.ansi = jm_Ansi.use_ansi();
+    }
+
+    /**
+     * Text appended from now on is drawn in {@code style}
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiOffHeap style(jm_AnsiStyle style)
+    {
+        this.style = style.packed();
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiOffHeap append(CharSequence text)
+    {
+        int n = text.length();
+        if (n == 0)
+            return this;
+        sync();
+        for (int i = 0; i < n;)
+        {
+            int end = Math.min(n, i + 2048);
+            if (end < n && Character.isHighSurrogate(text.charAt(end - 1)))
+                end++; // keep pairs together
+            stage.utf8(text, i, end);
+            if (stage.n >= 4096)
+                spill();
+            i = end;
+        }
+        return this;
+    }
+
+    /**
+     * Appends {@code text} in {@code style}, the style of anything after it is
+     * not changed
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiOffHeap append(jm_AnsiStyle style, CharSequence text)
+    {
+        long was = this.style;
+        this.style = style.packed();
+        append(text);
+        this.style = was;
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiOffHeap append(char c)
+    {
+        sync();
+        stage.utf8(c);
+        if (stage.n >= 4096)
+            spill();
+        return this;
+    }
+
+    /**
+     * Ends the line, colors do not bleed into the next one
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiOffHeap newline()
+    {
+        if (shown != 0L)
+        {
+            stage.utf8(jm_Ansi.reset());
+            shown = 0L;
+        }
+        stage.ascii('\n');
+        if (stage.n >= 4096)
+            spill();
+        return this;
+    }
+
+    /**
+     * @return Bytes written so far, including a RESET still owed at the end
+     */
+    public long size()
+    {
+        return flushed + stage.n + (shown != 0L ? jm_Ansi.reset().length() : 0);
+    }
+
+    /**
+     * @return Direct memory taken by the chunks
+     */
+    public long capacity()
+    {
+        return (long) chunks.size() * chunk_bytes;
+    }
+
+    /**
+     * Writes everything to {@code out} and ends it in the default style. The
+     * buffer is left as is and can be written again or appended to.
+     *
+     * @return Bytes written
+     */
+    public long write_to(WritableByteChannel out) throws IOException
+    {
+        Objects.requireNonNull(out);
+        if (shown != 0L)
+        {
+            stage.utf8(jm_Ansi.reset());
+            shown = 0L;
+        }
+        spill();
+        ByteBuffer[] views = new ByteBuffer[chunks.size()];
+        for (int i = 0; i < views.length; i++)
+        {
+            views[i] = chunks.get(i).duplicate();
+            views[i].flip();
+        }
+        return use_Parallel.write_all(out, views);
+    }
+
+    /**
+     * Drops the text but keeps the first chunk for reuse
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiOffHeap clear()
+    {
+        while (chunks.size() > 1)
+            chunks.remove(chunks.size() - 1);
+        if (!chunks.isEmpty())
+            chunks.get(0).clear();
+        stage.clear();
+        flushed = 0L;
+        style = shown = 0L;
+        return this;
+    }
+
+    private void sync()
+    {
+        if (ansi && style != shown)
+        {
+            codes.setLength(0);
+            use_Sgr.diff(shown, style, codes);
+            stage.utf8(codes);
+            shown = style;
+        }
+    }
+
+    /**
+     * Moves the staged bytes into the chunks, starting new ones as needed
+     */
+    private void spill()
+    {
+        int off = 0;
+        while (off < stage.n)
+        {
+            ByteBuffer c = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (c == null || !c.hasRemaining())
+            {
+                c = ByteBuffer.allocateDirect(chunk_bytes);
+                chunks.add(c);
+            }
+            int k = Math.min(c.remaining(), stage.n - off);
+            c.put(stage.a, off, k);
+            off += k;
+        }
+        flushed += stage.n;
+        stage.clear();
+    }
+}
@@ -0,0 +1,607 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * <h2>jm_AnsiScreen - An in-memory terminal</h2>
+ * <p>
+ * A grid of cells with a cursor and the current SGR state that formatted
+ * output can be fed into, so what the output <i>looks like</i> can be checked
+ * instead of the exact escape codes that produced it:
+ *
+ * <pre>
+ * jm_AnsiScreen screen = jm_AnsiScreen.make(80, 24);
+ * screen.feed(jm_AnsiStyle.of(1, 32).wrap("ok"));
+ * assert screen.line(0).equals("ok");
+ * assert screen.style_at(0, 0).equals(jm_AnsiStyle.of(1, 32));
+ * </pre>
+ * </p>
+ * <p>
+ * Two outputs that draw the same thing leave equal screens no matter how
+ * their codes were ordered or merged, see {@link #same_as(jm_AnsiScreen)}.
+ * {@link #chars_fed()} counts what went in, which makes comparing redraw
+ * strategies a matter of feeding each into a screen of its own.
+ * </p>
+ * Understood besides SGR: {@code \r \n \b \t}, cursor movement
+ * ({@code CSI A B C D E F G H d f}), erasing ({@code CSI J K}), saving and
+ * restoring the cursor ({@code ESC 7 8}, {@code CSI s u}) and line wrapping
+ * at the right edge the way xterm does it. Anything else is dropped. Every
+ * code point takes one cell.
+ * <p>
+ * [!] Not thread safe [!]
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiScreen
+{
+    /**
+     * @param cols
+     *          Width in cells
+     * @param rows
+     *          Height in cells
+     * @return A blank screen with the cursor at the top left
+     */
+    public static jm_AnsiScreen make(int cols, int rows)
+    {
+        if (cols <= 0 || rows <= 0)
+            throw new IllegalArgumentException("Screen of " + cols + "x" + rows);
+        return new jm_AnsiScreen(cols, rows);
+    }
+
+    private final int cols, rows;
+    private final int[] cells;
+    private final long[] styles;
+    private final _scan scan = new _scan();
+    private int x, y, saved_x, saved_y;
+    private boolean wrap_pending;
+    private long style, saved_style;
+    private char high; // pending high surrogate
+    private long chars_fed, escapes, scrolled;
+
+    private jm_AnsiScreen(int cols, int rows)
+    {
+        this.cols = cols;
+        this.rows = rows;
+        this.cells = new int[cols * rows];
+        this.styles = new long[cols * rows];
+        Arrays.fill(cells, ' ');
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiScreen feed(CharSequence text)
+    {
+        chars_fed += text.length();
+        for (int i = 0, n = text.length(); i < n; i++)
+            scan.feed(text.charAt(i));
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiScreen feed(char[] text, int off, int len)
+    {
+        chars_fed += len;
+        for (int i = off, end = off + len; i < end; i++)
+            scan.feed(text[i]);
+        return this;
+    }
+
+    /**
+     * @return A writer feeding this screen, closing it does nothing
+     */
+    public Writer writer()
+    {
+        return new Writer()
+        {
+            @Override public void write(char[] cbuf, int off, int len)
+            {
+                feed(cbuf, off, len);
+            }
+
+            @Override public void write(String str, int off, int len)
+            {
+                feed(str.subSequence(off, off + len));
+            }
+
+            @Override public void flush()
+            {
+            }
+
+            @Override public void close()
+            {
+            }
+        };
+    }
+
+    /**
+     * Feeds UTF-8 bytes, what {@link jm_Ansi._ansi#print()} writes can be caught
+     * with {@code System.setOut(new PrintStream(screen.stream(), true, "UTF-8"))}.
+     * Malformed input shows up as U+FFFD.
+     *
+     * @return A stream feeding this screen, closing it does nothing
+     */
+    public OutputStream stream()
+    {
+        return new OutputStream()
+        {
+            private int cp, need;
+
+            @Override public void write(int b)
+            {
+                b &= 0xFF;
+                if (need > 0 && (b & 0xC0) == 0x80)
+                {
+                    cp = cp << 6 | b & 0x3F;
+                    if (--need == 0)
+                        code_point(cp);
+                    return;
+                }
+                if (need > 0)
+                {
+                    need = 0;
+                    code_point(0xFFFD);
+                }
+                if (b < 0x80)
+                    code_point(b);
+                else if (b >= 0xC2 && b < 0xE0)
+                {
+                    cp = b & 0x1F;
+                    need = 1;
+                }
+                else if (b >= 0xE0 && b < 0xF0)
+                {
+                    cp = b & 0x0F;
+                    need = 2;
+                }
+                else if (b >= 0xF0 && b < 0xF5)
+                {
+                    cp = b & 0x07;
+                    need = 3;
+                }
+                else
+                    code_point(0xFFFD);
+            }
+
+            private void code_point(int c)
+            {
+                if (Character.isBmpCodePoint(c))
+                {
+                    chars_fed++;
+                    scan.feed((char) c);
+                }
+                else
+                {
+                    chars_fed += 2;
+                    scan.feed(Character.highSurrogate(c));
+                    scan.feed(Character.lowSurrogate(c));
+                }
+            }
+        };
+    }
+
+    /**
+     * Back to a blank screen with the cursor at the top left and the default
+     * style, counters included
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiScreen reset()
+    {
+        Arrays.fill(cells, ' ');
+        Arrays.fill(styles, 0L);
+        scan.reset_scan();
+        x = y = saved_x = saved_y = 0;
+        wrap_pending = false;
+        style = saved_style = 0L;
+        high = 0;
+        chars_fed = escapes = scrolled = 0L;
+        return this;
+    }
+
+    // -------- queries --------
+
+    public int cols()
+    {
+        return cols;
+    }
+
+    public int rows()
+    {
+        return rows;
+    }
+
+    public int cursor_x()
+    {
+        return x;
+    }
+
+    public int cursor_y()
+    {
+        return y;
+    }
+
+    /**
+     * @return The code point shown at a cell, a space if nothing was drawn there
+     */
+    public int char_at(int col, int row)
+    {
+        return cells[index(col, row)];
+    }
+
+    /**
+     * @return The style a cell was drawn (or erased) with
+     */
+    public jm_AnsiStyle style_at(int col, int row)
+    {
+        return jm_AnsiStyle.of_packed(styles[index(col, row)]);
+    }
+
+    /**
+     * @return The style the next character would be drawn with
+     */
+    public jm_AnsiStyle style()
+    {
+        return jm_AnsiStyle.of_packed(style);
+    }
+
+    /**
+     * @return The text of a row without its trailing spaces
+     */
+    public String line(int row)
+    {
+        int from = index(0, row), end = from + cols;
+        while (end > from && cells[end - 1] == ' ')
+            end--;
+        StringBuilder sb = new StringBuilder(end - from);
+        for (int i = from; i < end; i++)
+            sb.appendCodePoint(cells[i]);
+        return sb.toString();
+    }
+
+    /**
+     * @return Every row through {@link #line(int)}, trailing empty rows left out
+     */
+    public String text()
+    {
+        int last = rows - 1;
+        while (last > 0 && line(last).isEmpty())
+            last--;
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r <= last; r++)
+        {
+            if (r > 0)
+                sb.append('\n');
+            sb.append(line(r));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Draws the screen back out as text with as few codes as possible, rows
+     * separated by {@code \r\n}. Feeding the result into a blank screen of the same size gives an
+     * equal screen (cursor aside).
+     *
+     * @return The formatted screen, without codes if {@link jm_Ansi#use_ansi()}
+     *         is off
+     */
+    public String render()
+    {
+        if (!jm_Ansi.use_ansi())
+            return text();
+        StringBuilder sb = new StringBuilder(cells.length + 64);
+        long shown = 0L;
+        for (int r = 0; r < rows; r++)
+        {
+            int from = r * cols, end = from + cols;
+            while (end > from && cells[end - 1] == ' ' && styles[end - 1] == 0L)
+                end--;
+            if (r > 0)
+            {
+                if (shown != 0L)
+                {
+                    sb.append(jm_Ansi.reset());
+                    shown = 0L;
+                }
+                sb.append("\r\n");
+            }
+            for (int i = from; i < end; i++)
+            {
+                if (styles[i] != shown)
+                {
+                    use_Sgr.diff(shown, styles[i], sb);
+                    shown = styles[i];
+                }
+                sb.appendCodePoint(cells[i]);
+            }
+        }
+        if (shown != 0L)
+            sb.append(jm_Ansi.reset());
+        return sb.toString();
+    }
+
+    /**
+     * @return true if both screens are the same size and every cell shows the
+     *         same character in the same style, the cursor is not compared
+     */
+    public boolean same_as(jm_AnsiScreen other)
+    {
+        return cols == other.cols && rows == other.rows && Arrays.equals(cells, other.cells)
+                && Arrays.equals(styles, other.styles);
+    }
+
+    /**
+     * @return chars (UTF-16 units) fed since creation or the last
+     *         {@link #reset()}
+     */
+    public long chars_fed()
+    {
+        return chars_fed;
+    }
+
+    /**
+     * @return Escape sequences (SGR included) fed
+     */
+    public long escapes()
+    {
+        return escapes;
+    }
+
+    /**
+     * @return Rows scrolled off the top
+     */
+    public long scrolled()
+    {
+        return scrolled;
+    }
+
+    @Override public String toString()
+    {
+        return text();
+    }
+
+    // -------- drawing --------
+
+    private int index(int col, int row)
+    {
+        if (col < 0 || col >= cols || row < 0 || row >= rows)
+            throw new IndexOutOfBoundsException("(" + col + ", " + row + ") of " + cols + "x" + rows);
+        return row * cols + col;
+    }
+
+    private void put(int cp)
+    {
+        if (wrap_pending)
+        {
+            wrap_pending = false;
+            x = 0;
+            line_feed();
+        }
+        int i = y * cols + x;
+        cells[i] = cp;
+        styles[i] = style;
+        if (x == cols - 1)
+            wrap_pending = true;
+        else
+            x++;
+    }
+
+    private void line_feed()
+    {
+        if (y < rows - 1)
+        {
+            y++;
+            return;
+        }
+        System.arraycopy(cells, cols, cells, 0, cells.length - cols);
+        System.arraycopy(styles, cols, styles, 0, styles.length - cols);
+        erase(cells.length - cols, cells.length);
+        scrolled++;
+    }
+
+    /**
+     * Erased cells keep the background color, like most terminals do
+     */
+    private void erase(int from, int to)
+    {
+        Arrays.fill(cells, from, to, ' ');
+        Arrays.fill(styles, from, to, use_Sgr.with_bg(0L, use_Sgr.bg(style)));
+    }
+
+    private void move(int col, int row)
+    {
+        x = Math.max(0, Math.min(cols - 1, col));
+        y = Math.max(0, Math.min(rows - 1, row));
+        wrap_pending = false;
+    }
+
+    private void control(char c)
+    {
+        switch (c)
+        {
+            case '\n':
+                wrap_pending = false;
+                line_feed();
+                break;
+            case '\r':
+                move(0, y);
+                break;
+            case '\b':
+                move(x - 1, y);
+                break;
+            case '\t':
+                move(Math.min(cols - 1, (x / 8 + 1) * 8), y);
+                break;
+            default: // BEL and friends draw nothing
+                break;
+        }
+    }
+
+    /**
+     * CSI sequences other than SGR, parameters are read straight from the raw
+     * sequence
+     */
+    private void csi(CharSequence seq)
+    {
+        int n = seq.length();
+        char fin = seq.charAt(n - 1);
+        int a = 0, b = 0, count = 0, cur = 0;
+        boolean has = false;
+        for (int i = 2; i < n - 1; i++)
+        {
+            char c = seq.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                cur = Math.min(0xFFFF, cur * 10 + c - '0');
+                has = true;
+            }
+            else if (c == ';')
+            {
+                if (count == 0)
+                    a = has ? cur : 0;
+                else if (count == 1)
+                    b = has ? cur : 0;
+                count++;
+                cur = 0;
+                has = false;
+            }
+            else
+                return; // private or intermediate bytes, nothing of ours
+        }
+        if (count == 0)
+            a = has ? cur : 0;
+        else if (count == 1)
+            b = has ? cur : 0;
+        int step = Math.max(1, a);
+        switch (fin)
+        {
+            case 'A':
+                move(x, y - step);
+                break;
+            case 'B':
+                move(x, y + step);
+                break;
+            case 'C':
+                move(x + step, y);
+                break;
+            case 'D':
+                move(x - step, y);
+                break;
+            case 'E':
+                move(0, y + step);
+                break;
+            case 'F':
+                move(0, y - step);
+                break;
+            case 'G':
+                move(step - 1, y);
+                break;
+            case 'd':
+                move(x, step - 1);
+                break;
+            case 'H':
+            case 'f':
+                move(Math.max(1, b) - 1, step - 1);
+                break;
+            case 'J':
+                if (a == 0)
+                    erase(y * cols + x, cells.length);
+                else if (a == 1)
+                    erase(0, y * cols + x + 1);
+                else if (a == 2 || a == 3)
+                    erase(0, cells.length);
+                break;
+            case 'K':
+                if (a == 0)
+                    erase(y * cols + x, (y + 1) * cols);
+                else if (a == 1)
+                    erase(y * cols, y * cols + x + 1);
+                else if (a == 2)
+                    erase(y * cols, (y + 1) * cols);
+                break;
+            case 's':
+                save();
+                break;
+            case 'u':
+                restore();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void save()
+    {
+        saved_x = x;
+        saved_y = y;
+        saved_style = style;
+    }
+
+    private void restore()
+    {
+        move(saved_x, saved_y);
+        style = saved_style;
+    }
+
+    private final class _scan extends use_AnsiScan
+    {
+        @Override void on_char(char c)
+        {
+            if (Character.isHighSurrogate(c))
+            {
+                high = c;
+                return;
+            }
+            if (high != 0)
+            {
+                char h = high;
+                high = 0;
+                if (Character.isLowSurrogate(c))
+                {
+                    put(Character.toCodePoint(h, c));
+                    return;
+                }
+                put(0xFFFD);
+            }
+            if (c < 0x20 || c == 0x7F)
+                control(c);
+            else
+                put(Character.isLowSurrogate(c) ? 0xFFFD : c);
+        }
+
+        @Override void on_sgr(int[] p, int n)
+        {
+            escapes++;
+            style = use_Sgr.apply(style, p, n);
+        }
+
+        @Override void on_escape(CharSequence seq)
+        {
+            escapes++;
+            if (seq.length() < 2)
+                return;
+            char kind = seq.charAt(1);
+            if (kind == '[' && seq.length() > 2)
+                csi(seq);
+            else if (kind == '7')
+                save();
+            else if (kind == '8')
+                restore();
+            else if (kind == 'c')
+            {
+                long fed = chars_fed, esc = escapes, sc = scrolled;
+                reset();
+                chars_fed = fed;
+                escapes = esc;
+                scrolled = sc;
+            }
+        }
+    }
+}
@@ -0,0 +1,448 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h2>jm_AnsiScrollback - Compact history of formatted output</h2>
+ * <p>
+ * Keeps the most recent lines of formatted output within a fixed amount of
+ * memory. Instead of rendered strings with their codes, the text goes into
+ * one ring of UTF-8 bytes and the formatting into a ring of runs (where a
+ * style starts and which one it is), so a line that is all one color costs
+ * its bytes plus a single run:
+ *
+ * <pre>
+ * jm_AnsiScrollback history = jm_AnsiScrollback.make(4 &lt;&lt; 20, 100_000);
+ * history.append(jm_Ansi.make("started").green().toString()).append("\n");
+ * ...
+ * long hit = history.find("timeout", history.first_line());
+ * history.render(hit - 5, hit + 5, System.out);
+ * </pre>
+ * </p>
+ * <p>
+ * Appending is amortized constant time. Once any of the rings is full the
+ * oldest lines are dropped, a single line longer than the whole text ring
+ * loses its beginning. Lines are numbered from the first one ever appended,
+ * numbers stay valid until their line is dropped. Only SGR codes are kept,
+ * other escape sequences and {@code \r} are left out.
+ * </p>
+ * <p>
+ * [!] Not thread safe [!]
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiScrollback
+{
+    /**
+     * @param max_bytes
+     *          UTF-8 text kept at most
+     * @param max_lines
+     *          Lines kept at most (2 or more), four bytes each
+     * @return An empty history, also allowing {@code max_bytes / 16} style runs
+     *         (twelve bytes each)
+     */
+    public static jm_AnsiScrollback make(int max_bytes, int max_lines)
+    {
+        if (max_bytes <= 0 || max_lines < 2)
+            throw new IllegalArgumentException("Scrollback of " + max_bytes + " bytes and " + max_lines + " lines");
+        return new jm_AnsiScrollback(max_bytes, max_lines, Math.max(16, max_bytes / 16));
+    }
+
+    /*
+     * Text positions count every byte ever written, the ring index is
+     * pos % text.length. Lines and runs only keep the low 32 bits since
+     * everything they point at is within one ring length of text_tail, see
+     * at(int).
+     */
+    private final byte[] text;
+    private long text_tail, text_head;
+
+    private final int[] line_start;
+    private long line_first, line_count; // the last line is the one being written to
+
+    // runs hold the packed style itself, a table of ids would grow with every style ever seen
+    private final int[] run_pos;
+    private final long[] run_style;
+    private long run_first, run_count;
+
+    private long style;
+    private char high; // pending high surrogate
+
+    private final _scan scan = new _scan();
+
+    private jm_AnsiScrollback(int max_bytes, int max_lines, int max_runs)
+    {
+        this.text = new byte[max_bytes];
+        this.line_start = new int[max_lines];
+        this.run_pos = new int[max_runs];
+        this.run_style = new long[max_runs];
+        line_count = 1;
+    }
+
+    // -------- writing --------
+
+    /**
+     * Appends formatted text, {@code \n} starts a new line
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiScrollback append(CharSequence formatted)
+    {
+        for (int i = 0, n = formatted.length(); i < n; i++)
+            scan.feed(formatted.charAt(i));
+        return this;
+    }
+
+    /**
+     * Appends unformatted text in a style without looking for codes in it, the
+     * style of anything appended after is not changed
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiScrollback append(jm_AnsiStyle style, CharSequence plain)
+    {
+        long was = this.style;
+        use(style.packed());
+        for (int i = 0, n = plain.length(); i < n; i++)
+            put(plain.charAt(i));
+        use(was);
+        return this;
+    }
+
+    /**
+     * Drops everything, line numbers keep counting
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiScrollback clear()
+    {
+        text_tail = text_head;
+        line_first += line_count - 1;
+        line_count = 1;
+        line_start[(int) (line_first % line_start.length)] = (int) text_head;
+        run_first += run_count;
+        run_count = 0;
+        high = 0;
+        scan.reset_scan();
+        return this;
+    }
+
+    private void use(long packed)
+    {
+        style = packed;
+    }
+
+    private void put(char c)
+    {
+        if (c == '\n')
+        {
+            high = 0;
+            if (line_count == line_start.length)
+                drop_line();
+            line_start[(int) ((line_first + line_count++) % line_start.length)] = (int) text_head;
+            return;
+        }
+        if (c == '\r')
+            return;
+        if (Character.isHighSurrogate(c))
+        {
+            high = c;
+            return;
+        }
+        int cp = c;
+        if (high != 0)
+        {
+            cp = Character.isLowSurrogate(c) ? Character.toCodePoint(high, c) : '?';
+            high = 0;
+        }
+        else if (Character.isLowSurrogate(c))
+            cp = '?';
+        int len = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+        while (text.length - (text_head - text_tail) < len)
+            drop_line();
+        if (run_count == 0 || run_style[(int) ((run_first + run_count - 1) % run_pos.length)] != style)
+        {
+            while (run_count == run_pos.length)
+                drop_line();
+            int r = (int) ((run_first + run_count++) % run_pos.length);
+            run_pos[r] = (int) text_head;
+            run_style[r] = style;
+        }
+        if (len == 1)
+            byte_at(cp);
+        else if (len == 2)
+        {
+            byte_at(0xC0 | cp >> 6);
+            byte_at(0x80 | cp & 0x3F);
+        }
+        else if (len == 3)
+        {
+            byte_at(0xE0 | cp >> 12);
+            byte_at(0x80 | cp >> 6 & 0x3F);
+            byte_at(0x80 | cp & 0x3F);
+        }
+        else
+        {
+            byte_at(0xF0 | cp >> 18);
+            byte_at(0x80 | cp >> 12 & 0x3F);
+            byte_at(0x80 | cp >> 6 & 0x3F);
+            byte_at(0x80 | cp & 0x3F);
+        }
+    }
+
+    private void byte_at(int b)
+    {
+        text[(int) (text_head++ % text.length)] = (byte) b;
+    }
+
+    /**
+     * Frees room by dropping the oldest line, or the oldest part of the only
+     * line
+     */
+    private void drop_line()
+    {
+        if (line_count > 1)
+        {
+            line_first++;
+            line_count--;
+            text_tail = at(line_start[(int) (line_first % line_start.length)]);
+        }
+        else
+        {
+            // a single line filling the ring, give up its first run or a quarter of the text
+            long cut = run_count > 1 ? at(run_pos[(int) ((run_first + 1) % run_pos.length)]) : text_head;
+            long t = Math.min(cut, Math.max(text_tail + 1, text_tail + text.length / 4));
+            while (t < text_head && (text[(int) (t % text.length)] & 0xC0) == 0x80)
+                t++; // never start in the middle of a character
+            text_tail = t;
+            line_start[(int) (line_first % line_start.length)] = (int) t;
+        }
+        while (run_count > 1 && at(run_pos[(int) ((run_first + 1) % run_pos.length)]) <= text_tail)
+        {
+            run_first++;
+            run_count--;
+        }
+        if (run_count == 1 && text_tail == text_head)
+        {
+            run_first++;
+            run_count--;
+        }
+    }
+
+    /**
+     * @return The full position of one kept as its low 32 bits
+     */
+    private long at(int low)
+    {
+        return text_tail + (low - (int) text_tail);
+    }
+
+    // -------- reading --------
+
+    /**
+     * @return The number of the oldest line kept
+     */
+    public long first_line()
+    {
+        return line_first;
+    }
+
+    /**
+     * @return The number of the line being written to
+     */
+    public long last_line()
+    {
+        return line_first + line_count - 1;
+    }
+
+    /**
+     * @return Lines kept, the one being written to included
+     */
+    public long lines()
+    {
+        return line_count;
+    }
+
+    /**
+     * @return Bytes of text kept
+     */
+    public long bytes()
+    {
+        return text_head - text_tail;
+    }
+
+    /**
+     * @return Bytes taken by the rings, fixed when made
+     */
+    public long memory()
+    {
+        return text.length + line_start.length * 4L + run_pos.length * 12L;
+    }
+
+    /**
+     * @return The text of a line without formatting, {@code null} if it was
+     *         dropped or not written yet
+     */
+    public String line(long n)
+    {
+        if (n < line_first || n > last_line())
+            return null;
+        long from = start(n), to = end(n);
+        byte[] b = new byte[(int) (to - from)];
+        copy(from, to, b, 0);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Searches the unformatted text line by line
+     *
+     * @param from
+     *          First line to look at, older lines than {@link #first_line()} start
+     *          there
+     * @return The number of the first line containing {@code needle}, -1 if
+     *         none does
+     */
+    public long find(CharSequence needle, long from)
+    {
+        byte[] k = needle.toString().getBytes(StandardCharsets.UTF_8);
+        if (k.length == 0)
+            return from <= last_line() ? Math.max(from, line_first) : -1;
+        for (long n = Math.max(from, line_first), last = last_line(); n <= last; n++)
+            for (long p = start(n), end = end(n) - k.length; p <= end; p++)
+            {
+                if (text[(int) (p % text.length)] != k[0])
+                    continue;
+                int i = 1;
+                while (i < k.length && text[(int) ((p + i) % text.length)] == k[i])
+                    i++;
+                if (i == k.length)
+                    return n;
+            }
+        return -1;
+    }
+
+    /**
+     * Draws lines {@code [from, to)} with their formatting, each followed by a
+     * line break and ending in the default style. Lines that were dropped are
+     * skipped.
+     *
+     * @throws UncheckedIOException
+     *           if {@code out} fails
+     */
+    public void render(long from, long to, Appendable out)
+    {
+        from = Math.max(from, line_first);
+        to = Math.min(to, last_line() + 1);
+        boolean ansi = jm_Ansi.use_ansi();
+        StringBuilder sb = new StringBuilder(256);
+        byte[] b = new byte[256];
+        try
+        {
+            for (long n = from; n < to; n++)
+            {
+                sb.setLength(0);
+                long p = start(n), end = end(n), shown = 0L;
+                long r = run_of(p);
+                while (p < end)
+                {
+                    long next = end;
+                    if (r >= 0)
+                    {
+                        if (ansi)
+                        {
+                            long want = run_style[(int) (r % run_pos.length)];
+                            use_Sgr.diff(shown, want, sb);
+                            shown = want;
+                        }
+                        if (r + 1 < run_first + run_count)
+                            next = Math.min(end, at(run_pos[(int) ((r + 1) % run_pos.length)]));
+                    }
+                    if (next - p > b.length)
+                        b = new byte[(int) Math.max(next - p, b.length * 2L)];
+                    copy(p, next, b, 0);
+                    sb.append(new String(b, 0, (int) (next - p), StandardCharsets.UTF_8));
+                    p = next;
+                    r++;
+                }
+                if (shown != 0L)
+                    sb.append(jm_Ansi.reset());
+                out.append(sb).append('\n');
+            }
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return {@link #render(long, long, Appendable)} of every line kept
+     */
+    @Override public String toString()
+    {
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE / 2, bytes() + line_count * 8));
+        render(line_first, last_line() + 1, sb);
+        return sb.toString();
+    }
+
+    private long start(long n)
+    {
+        return at(line_start[(int) (n % line_start.length)]);
+    }
+
+    private long end(long n)
+    {
+        return n == last_line() ? text_head : at(line_start[(int) ((n + 1) % line_start.length)]);
+    }
+
+    /**
+     * Copies text positions {@code [from, to)} out of the ring with at most two
+     * array copies
+     */
+    private void copy(long from, long to, byte[] dst, int off)
+    {
+        int i = (int) (from % text.length), len = (int) (to - from), first = Math.min(len, text.length - i);
+        System.arraycopy(text, i, dst, off, first);
+        System.arraycopy(text, 0, dst, off + first, len - first);
+    }
+
+    /**
+     * @return The run holding text position {@code p}, -1 if there is none
+     */
+    private long run_of(long p)
+    {
+        long lo = run_first, hi = run_first + run_count - 1;
+        if (run_count == 0 || at(run_pos[(int) (lo % run_pos.length)]) > p)
+            return -1;
+        while (lo < hi)
+        {
+            long mid = (lo + hi + 1) >>> 1;
+            if (at(run_pos[(int) (mid % run_pos.length)]) <= p)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    private final class _scan extends use_AnsiScan
+    {
+        @Override void on_char(char c)
+        {
+            put(c);
+        }
+
+        @Override void on_sgr(int[] p, int n)
+        {
+            use(use_Sgr.apply(style, p, n));
+        }
+
+        @Override void on_escape(CharSequence seq)
+        {
+        }
+    }
+}
@@ -0,0 +1,406 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>jm_AnsiSink - Buffered print streams with a flush policy</h2>
+ * <p>
+ * {@link System#out} flushes on every line, so a batch job printing millions
+ * of colored lines spends most of its time in system calls even when the
+ * output goes to a file or a pipe. A sink is a {@link PrintStream} that
+ * collects the bytes and decides itself when to hand them on:
+ * <ul>
+ * <li>{@link _policy#LINE} - after every line, what a person watching a
+ * terminal expects</li>
+ * <li>{@link _policy#BLOCK} - once the buffer is full or the oldest byte in
+ * it has waited for the interval, whichever comes first</li>
+ * <li>{@link _policy#MANUAL} - only when full or on {@link #flush()}</li>
+ * </ul>
+ * </p>
+ * <p>
+ * {@link #install()} puts one over the process' standard output, choosing
+ * {@link _policy#LINE} when it is a terminal and {@link _policy#BLOCK}
+ * otherwise. As {@link jm_Ansi._ansi#print()} and
+ * {@link jm_Ansi._ansi#println()} look up {@link System#out} on every call
+ * they, and everything else printing there, go through it in order:
+ *
+ * <pre>
+ * jm_AnsiSink.install();
+ * for (Row r : rows)
+ *     jm_Ansi.make(r.name).green().println();
+ * </pre>
+ * </p>
+ * <p>
+ * What is still buffered when the JVM shuts down is written out by a shutdown
+ * hook, a sink that was closed is left alone. Bytes waiting in sinks show up
+ * as the queue depth of {@link jm_AnsiMetrics} (one record per write) and a
+ * failed write out counts what it loses as drops.
+ * </p>
+ * Like any {@link PrintStream} a sink can be shared between threads. Sinks
+ * stay reachable until they are closed.
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiSink extends PrintStream
+{
+    /**
+     * When a sink writes out what it collected
+     */
+    public enum _policy
+    {
+        LINE, BLOCK, MANUAL
+    }
+
+    private static final Set<_buffer> OPEN = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static jm_AnsiSink stdout;
+    private static boolean hooked;
+
+    /**
+     * @param out
+     *          Where the bytes go, closed with the sink
+     * @return A sink with the {@link _policy#BLOCK} policy, a 64 KB buffer and
+     *         an interval of 200 ms
+     */
+    public static jm_AnsiSink make(OutputStream out)
+    {
+        return new jm_AnsiSink(new _buffer(Objects.requireNonNull(out)));
+    }
+
+    /**
+     * @return The sink over the standard output of the process, made on the
+     *         first call, {@link _policy#LINE} if it is a terminal
+     */
+    public static synchronized jm_AnsiSink stdout()
+    {
+        if (stdout == null)
+        {
+            stdout = make(new FileOutputStream(FileDescriptor.out));
+            if (System.console() != null)
+                stdout.policy(_policy.LINE);
+        }
+        return stdout;
+    }
+
+    /**
+     * Replaces {@link System#out} with {@link #stdout()}, whatever was printed
+     * to the old one is flushed first
+     *
+     * @return The sink now being {@link System#out}
+     */
+    public static synchronized jm_AnsiSink install()
+    {
+        jm_AnsiSink sink = stdout();
+        if (System.out != sink)
+        {
+            System.out.flush();
+            System.setOut(sink);
+        }
+        return sink;
+    }
+
+    private final _buffer buffer;
+
+    private jm_AnsiSink(_buffer buffer)
+    {
+        super(buffer, false);
+        this.buffer = buffer;
+        open(buffer);
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiSink policy(_policy policy)
+    {
+        buffer.policy(Objects.requireNonNull(policy));
+        return this;
+    }
+
+    /**
+     * @param bytes
+     *          Collected before writing out regardless of the policy, at least
+     *          512
+     * @return Instance for cascading
+     */
+    public jm_AnsiSink buffer(int bytes)
+    {
+        buffer.resize(Math.max(512, bytes));
+        return this;
+    }
+
+    /**
+     * @param time
+     *          Longest time bytes wait with the {@link _policy#BLOCK} policy
+     * @return Instance for cascading
+     */
+    public jm_AnsiSink interval(long time, TimeUnit unit)
+    {
+        buffer.interval(Math.max(TimeUnit.MILLISECONDS.toNanos(1), unit.toNanos(time)));
+        return this;
+    }
+
+    /**
+     * @return The policy in use
+     */
+    public _policy policy()
+    {
+        return buffer.policy;
+    }
+
+    /**
+     * @return Bytes collected but not written out yet
+     */
+    public int pending()
+    {
+        return buffer.pending();
+    }
+
+    @Override public void close()
+    {
+        super.close();
+        OPEN.remove(buffer);
+    }
+
+    private static synchronized void open(_buffer b)
+    {
+        OPEN.add(b);
+        if (!hooked)
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (_buffer x : OPEN)
+                    x.drain_quietly();
+            }, "jm_AnsiSink-drain"));
+            hooked = true;
+        }
+    }
+
+    /**
+     * The daemon thread writing out {@link _policy#BLOCK} sinks when their
+     * interval is up, started with the first of them
+     */
+    private static final class _timer
+    {
+        static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "jm_AnsiSink-timer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        static
+        {
+            TIMER.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    /**
+     * The stream below the {@link PrintStream}, {@link PrintStream} hands it
+     * the bytes of every print as soon as they are encoded
+     */
+    private static final class _buffer extends OutputStream
+    {
+        private final OutputStream out;
+        private byte[] a = new byte[64 << 10];
+        private int n, records, reported; // reported: records counted in the metrics queue depth
+        private volatile _policy policy = _policy.BLOCK;
+        private long interval = TimeUnit.MILLISECONDS.toNanos(200), oldest; // oldest: when the first pending byte came
+        private ScheduledFuture< ? > tick;
+        private boolean closed;
+
+        _buffer(OutputStream out)
+        {
+            this.out = out;
+        }
+
+        synchronized void policy(_policy policy)
+        {
+            this.policy = policy;
+            schedule();
+        }
+
+        synchronized void interval(long nanos)
+        {
+            this.interval = nanos;
+            schedule();
+        }
+
+        synchronized void resize(int bytes)
+        {
+            if (bytes < n)
+                drain_quietly();
+            byte[] b = new byte[bytes];
+            System.arraycopy(a, 0, b, 0, n);
+            a = b;
+        }
+
+        synchronized int pending()
+        {
+            return n;
+        }
+
+        /**
+         * Sets the timer for when the oldest pending byte is due, only the
+         * {@link _policy#BLOCK} policy has one
+         */
+        private void schedule()
+        {
+            if (tick != null)
+                tick.cancel(false);
+            tick = null;
+            if (policy == _policy.BLOCK && !closed && n > 0)
+                tick = _timer.TIMER.schedule(this::due, Math.max(0L, oldest + interval - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void due()
+        {
+            tick = null;
+            if (n > 0 && System.nanoTime() - oldest >= interval)
+                drain_quietly();
+            else
+                schedule(); // written out and filled again since it was set
+        }
+
+        @Override public synchronized void write(int b) throws IOException
+        {
+            if (closed)
+                throw new IOException("Sink closed");
+            if (n == a.length)
+                drain();
+            queue();
+            a[n++] = (byte) b;
+            after(b == '\n');
+        }
+
+        @Override public synchronized void write(byte[] b, int off, int len) throws IOException
+        {
+            if (closed)
+                throw new IOException("Sink closed");
+            if (len <= 0)
+                return;
+            if (n + len > a.length)
+            {
+                drain();
+                if (len >= a.length) // would not fit anyway, skip the copy
+                {
+                    out.write(b, off, len);
+                    return;
+                }
+            }
+            queue();
+            System.arraycopy(b, off, a, n, len);
+            n += len;
+            boolean line = false;
+            if (policy == _policy.LINE)
+                for (int i = off + len - 1; i >= off && !line; i--)
+                    line = b[i] == '\n';
+            after(line);
+        }
+
+        /**
+         * Counts a write that is about to be buffered
+         */
+        private void queue()
+        {
+            if (n == 0)
+                oldest = System.nanoTime();
+            records++;
+            if (jm_AnsiMetrics.on)
+            {
+                reported++;
+                jm_AnsiMetrics.queued(1);
+            }
+        }
+
+        /**
+         * Writes out what the policy says is due after a write
+         *
+         * @param line
+         *          Whether the write had a line break
+         */
+        private void after(boolean line) throws IOException
+        {
+            if (policy == _policy.LINE && line)
+            {
+                drain();
+                out.flush();
+            }
+            else if (policy == _policy.BLOCK && System.nanoTime() - oldest >= interval)
+                drain();
+            else if (policy == _policy.BLOCK && tick == null)
+                schedule();
+        }
+
+        @Override public synchronized void flush() throws IOException
+        {
+            drain();
+            out.flush();
+        }
+
+        @Override public synchronized void close() throws IOException
+        {
+            if (closed)
+                return;
+            closed = true;
+            schedule();
+            try
+            {
+                drain();
+            } finally
+            {
+                out.close();
+            }
+        }
+
+        /**
+         * Writes out everything collected, on failure it is dropped so one bad
+         * write does not make every later one fail again
+         */
+        private void drain() throws IOException
+        {
+            int k = records;
+            records = 0;
+            try
+            {
+                if (n > 0)
+                    out.write(a, 0, n);
+            } catch (IOException e)
+            {
+                for (int i = 0; i < k; i++)
+                    jm_AnsiMetrics.dropped();
+                throw e;
+            } finally
+            {
+                n = 0;
+                if (reported > 0)
+                {
+                    jm_AnsiMetrics.queued(-reported);
+                    reported = 0;
+                }
+            }
+        }
+
+        synchronized void drain_quietly()
+        {
+            try
+            {
+                drain();
+                out.flush();
+            } catch (IOException ignored)
+            {
+                // already counted as drops, there is no one to tell from a timer or shutdown hook
+            }
+        }
+    }
+}
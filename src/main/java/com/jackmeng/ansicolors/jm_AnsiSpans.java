@@ -0,0 +1,206 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * <h2>jm_AnsiSpans - Nested formatting</h2>
+ * <p>
+ * Builds text out of styled spans that can be nested. Each {@link #push}
+ * composes its style into the one around it (see
+ * {@link jm_AnsiStyle#with(jm_AnsiStyle)}) and each {@link #pop()} goes back to
+ * the parent, so a bold word inside a red sentence stays inside a red
+ * sentence:
+ *
+ * <pre>
+ * String s = jm_AnsiSpans.make()
+ *         .push(RED).text("could not open ")
+ *         .span(BOLD, path)
+ *         .text(", retrying").pop()
+ *         .toString();
+ * </pre>
+ * </p>
+ * <p>
+ * Codes are only written right before text that needs them and only for what
+ * changed ({@code ESC[22m} after the bold word above instead of a full RESET
+ * and the red again). Spans that end up with no text cost nothing. The result
+ * always ends in the default style.
+ * </p>
+ * <p>
+ * [!] Not thread safe [!]
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiSpans
+{
+    /**
+     * @return An empty builder in the default style
+     */
+    public static jm_AnsiSpans make()
+    {
+        return new jm_AnsiSpans(new StringBuilder());
+    }
+
+    /**
+     * @param out
+     *          Where to append, must not be modified by anything else until
+     *          {@link #finish()}
+     */
+    public static jm_AnsiSpans make(StringBuilder out)
+    {
+        return new jm_AnsiSpans(out);
+    }
+
+    private final StringBuilder out;
+    private final boolean ansi;
+    private jm_AnsiStyle[] stack = new jm_AnsiStyle[8];
+    private int depth;
+    private long shown;
+
+    private jm_AnsiSpans(StringBuilder out)
+    {
+        this.out = out;
+        this.ansi = jm_Ansi.use_ansi();
+        stack[0] = jm_AnsiStyle.NONE;
+    }
+
+    /**
+     * Starts a span, text from now on is drawn in {@code style} composed into the
+     * current one
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiSpans push(jm_AnsiStyle style)
+    {
+        if (++depth == stack.length)
+            stack = Arrays.copyOf(stack, depth << 1);
+        stack[depth] = stack[depth - 1].with(style);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiSpans push(jm_AnsiTheme._role role)
+    {
+        return push(role.style());
+    }
+
+    /**
+     * Ends the innermost span
+     *
+     * @return Instance for cascading
+     * @throws IllegalStateException
+     *           if no span is open
+     */
+    public jm_AnsiSpans pop()
+    {
+        if (depth == 0)
+            throw new IllegalStateException("No span to pop");
+        stack[depth--] = null;
+        return this;
+    }
+
+    /**
+     * @return Spans currently open
+     */
+    public int depth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The style text is drawn in right now
+     */
+    public jm_AnsiStyle current()
+    {
+        return stack[depth];
+    }
+
+    /**
+     * Appends text in the current style
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiSpans text(CharSequence text)
+    {
+        if (text.length() == 0)
+            return this;
+        sync();
+        out.append(text);
+        return this;
+    }
+
+    /**
+     * @return Instance for cascading
+     */
+    public jm_AnsiSpans text(char c)
+    {
+        sync();
+        out.append(c);
+        return this;
+    }
+
+    /**
+     * Same as {@code push(style).text(text).pop()}
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiSpans span(jm_AnsiStyle style, CharSequence text)
+    {
+        return push(style).text(text).pop();
+    }
+
+    /**
+     * Closes every open span and moves back to the default style
+     *
+     * @return The builder everything was appended to
+     */
+    public StringBuilder finish()
+    {
+        while (depth > 0)
+            stack[depth--] = null;
+        sync();
+        return out;
+    }
+
+    /**
+     * Appends {@link #toString()} to {@code out}
+     *
+     * @throws UncheckedIOException
+     *           if {@code out} fails
+     */
+    public void write_to(Appendable out)
+    {
+        try
+        {
+            out.append(toString());
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Where the text stands now, ending in the default style, without closing
+     * the open spans
+     */
+    @Override public String toString()
+    {
+        return shown == 0L ? out.toString() : out.toString() + jm_Ansi.reset();
+    }
+
+    private void sync()
+    {
+        long want = stack[depth].packed();
+        if (ansi && want != shown)
+        {
+            use_Sgr.diff(shown, want, out);
+            shown = want;
+        }
+    }
+}
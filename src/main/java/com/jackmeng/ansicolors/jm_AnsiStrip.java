@@ -0,0 +1,332 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiStrip - Fast escape scanning and stripping</h2>
+ * <p>
+ * Removes every escape sequence (SGR, cursor movement, OSC hyperlinks and
+ * titles, charset selection ...) from UTF-8 bytes or text, leaving only what
+ * would have been visible.
+ * </p>
+ * <p>
+ * Most of the time is spent looking for the next {@code ESC} byte, so that is
+ * done 16 bytes per step with plain {@code long} arithmetic (SWAR) and
+ * everything in between two escapes is copied with a single
+ * {@link System#arraycopy}. The per byte state machine only runs inside escape
+ * sequences. Setting the system property {@code jm.ansi.scalar} to
+ * {@code true} before this class loads selects a plain byte loop instead.
+ * </p>
+ * <p>
+ * An instance remembers an escape sequence that was cut in half between two
+ * calls, so big inputs can be stripped in any sized chunks:
+ *
+ * <pre>
+ * jm_AnsiStrip strip = jm_AnsiStrip.make();
+ * int n;
+ * while ((n = in.read(buf)) != -1)
+ *     out.write(buf, 0, strip.strip(buf, 0, n, buf, 0));
+ * </pre>
+ * </p>
+ * [!] Instances are not thread safe, the static methods are. [!]
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiStrip
+{
+    private static final byte ESC = 0x1B;
+
+    private static final int TEXT = 0, ESCAPE = 1, CSI = 2, OSC = 3, OSC_ESC = 4;
+
+    private static final long ONES = 0x0101010101010101L, HIGHS = 0x8080808080808080L, ESCS = ONES * ESC;
+
+    // little endian so the lowest set bit of a match mask is the earliest byte
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Whether the word at a time scan is used, decided once at startup
+     */
+    static final boolean SWAR = !Boolean.getBoolean("jm.ansi.scalar");
+
+    /**
+     * @return A stripper that is not inside any escape sequence
+     */
+    public static jm_AnsiStrip make()
+    {
+        return new jm_AnsiStrip();
+    }
+
+    private int state = TEXT;
+
+    private jm_AnsiStrip()
+    {
+    }
+
+    /**
+     * @return the index of the first {@code ESC} in {@code a[from, to)}, -1 if
+     *         there is none
+     */
+    public static int index_of_escape(byte[] a, int from, int to)
+    {
+        Objects.checkFromToIndex(from, to, a.length);
+        int i = from;
+        if (SWAR)
+        {
+            for (; i + 16 <= to; i += 16)
+            {
+                long x = (long) LONGS.get(a, i) ^ ESCS, y = (long) LONGS.get(a, i + 8) ^ ESCS;
+                long mx = (x - ONES) & ~x & HIGHS, my = (y - ONES) & ~y & HIGHS;
+                if ((mx | my) != 0)
+                    return mx != 0 ? i + (Long.numberOfTrailingZeros(mx) >>> 3)
+                            : i + 8 + (Long.numberOfTrailingZeros(my) >>> 3);
+            }
+            if (i + 8 <= to)
+            {
+                long x = (long) LONGS.get(a, i) ^ ESCS;
+                long mx = (x - ONES) & ~x & HIGHS;
+                if (mx != 0)
+                    return i + (Long.numberOfTrailingZeros(mx) >>> 3);
+                i += 8;
+            }
+        }
+        for (; i < to; i++)
+            if (a[i] == ESC)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Same as {@link #index_of_escape(byte[], int, int)} for absolute indices
+     * of a heap or direct (memory mapped) buffer, its position is not used or
+     * changed
+     */
+    public static int index_of_escape(ByteBuffer b, int from, int to)
+    {
+        Objects.checkFromToIndex(from, to, b.limit());
+        if (b.hasArray())
+        {
+            int off = b.arrayOffset(), at = index_of_escape(b.array(), off + from, off + to);
+            return at < 0 ? -1 : at - off;
+        }
+        int i = from;
+        if (SWAR)
+            for (; i + 8 <= to; i += 8)
+            {
+                long x = (long) BUFFER_LONGS.get(b, i) ^ ESCS;
+                long mx = (x - ONES) & ~x & HIGHS;
+                if (mx != 0)
+                    return i + (Long.numberOfTrailingZeros(mx) >>> 3);
+            }
+        for (; i < to; i++)
+            if (b.get(i) == ESC)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return true if {@code a[off, off + len)} holds at least one {@code ESC}
+     */
+    public static boolean has_escapes(byte[] a, int off, int len)
+    {
+        return index_of_escape(a, off, off + len) >= 0;
+    }
+
+    /**
+     * @return {@code s} without escape sequences, {@code s} itself when it is a
+     *         String that has none
+     */
+    public static String strip(CharSequence s)
+    {
+        String str = s.toString();
+        int i = str.indexOf(ESC);
+        if (i < 0)
+            return str;
+        StringBuilder sb = new StringBuilder(str.length()).append(str, 0, i);
+        int state = TEXT;
+        for (; i < str.length(); i++)
+        {
+            char c = str.charAt(i);
+            if (state != TEXT)
+                state = next(state, c);
+            else if (c == ESC)
+                state = ESCAPE;
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return A new array with the escape sequences of {@code a} removed
+     */
+    public static byte[] strip(byte[] a)
+    {
+        byte[] r = a.clone();
+        int n = new jm_AnsiStrip().strip(r, 0, r.length, r, 0);
+        return n == r.length ? r : Arrays.copyOf(r, n);
+    }
+
+    /**
+     * Strips {@code src[off, off + len)} into {@code dst} starting at
+     * {@code dst_off}. The output is never longer than the input, so
+     * {@code dst} may be {@code src} as long as {@code dst_off <= off}.
+     *
+     * @return number of bytes written
+     */
+    public int strip(byte[] src, int off, int len, byte[] dst, int dst_off)
+    {
+        Objects.checkFromIndexSize(off, len, src.length);
+        int i = off, end = off + len, n = dst_off;
+        while (i < end)
+        {
+            if (state == TEXT)
+            {
+                int e = index_of_escape(src, i, end), stop = e < 0 ? end : e;
+                if (stop > i)
+                {
+                    System.arraycopy(src, i, dst, n, stop - i);
+                    n += stop - i;
+                }
+                if (e < 0)
+                    break;
+                state = ESCAPE;
+                i = e + 1;
+            }
+            else
+                for (; i < end && state != TEXT; i++)
+                    state = next(state, src[i]);
+        }
+        return n - dst_off;
+    }
+
+    /**
+     * Strips everything remaining in {@code src} into {@code dst}, both
+     * positions are moved. Works on direct and memory mapped buffers without
+     * copying them to the heap first.
+     *
+     * @throws BufferOverflowException
+     *           if {@code dst} has less room than {@code src} has remaining and
+     *           the output does not fit
+     */
+    public void strip(ByteBuffer src, ByteBuffer dst)
+    {
+        if (src.hasArray() && dst.hasArray() && !dst.isReadOnly())
+        {
+            int n = strip(src.array(), src.arrayOffset() + src.position(), src.remaining(), dst.array(),
+                    dst.arrayOffset() + dst.position(), dst.remaining());
+            src.position(src.limit());
+            dst.position(dst.position() + n);
+            return;
+        }
+        int i = src.position(), end = src.limit();
+        while (i < end)
+        {
+            if (state == TEXT)
+            {
+                int e = index_of_escape(src, i, end), stop = e < 0 ? end : e;
+                if (stop > i)
+                {
+                    if (stop - i > dst.remaining())
+                        throw new BufferOverflowException();
+                    dst.put(dst.position(), src, i, stop - i);
+                    dst.position(dst.position() + stop - i);
+                }
+                if (e < 0)
+                    break;
+                state = ESCAPE;
+                i = e + 1;
+            }
+            else
+                for (; i < end && state != TEXT; i++)
+                    state = next(state, src.get(i));
+        }
+        src.position(end);
+    }
+
+    /**
+     * Array path of {@link #strip(ByteBuffer, ByteBuffer)} that checks the
+     * destination bound as it goes
+     */
+    private int strip(byte[] src, int off, int len, byte[] dst, int dst_off, int room)
+    {
+        if (len <= room)
+            return strip(src, off, len, dst, dst_off);
+        int i = off, end = off + len, n = dst_off;
+        while (i < end)
+        {
+            if (state == TEXT)
+            {
+                int e = index_of_escape(src, i, end), stop = e < 0 ? end : e;
+                if (n - dst_off + stop - i > room)
+                    throw new BufferOverflowException();
+                System.arraycopy(src, i, dst, n, stop - i);
+                n += stop - i;
+                if (e < 0)
+                    break;
+                state = ESCAPE;
+                i = e + 1;
+            }
+            else
+                for (; i < end && state != TEXT; i++)
+                    state = next(state, src[i]);
+        }
+        return n - dst_off;
+    }
+
+    /**
+     * @return true if the last call did not end in the middle of an escape
+     *         sequence
+     */
+    public boolean idle()
+    {
+        return state == TEXT;
+    }
+
+    /**
+     * Forgets a pending partial escape sequence
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiStrip reset()
+    {
+        state = TEXT;
+        return this;
+    }
+
+    /**
+     * Escape sequence states, the same grammar {@link use_AnsiScan} follows
+     * plus the string commands (DCS, SOS, PM, APC) that end like OSC does
+     */
+    private static int next(int state, int c)
+    {
+        switch (state)
+        {
+            case ESCAPE:
+                if (c == '[')
+                    return CSI;
+                if (c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_')
+                    return OSC;
+                return c >= 0x20 && c <= 0x2F ? ESCAPE : TEXT; // intermediates wait for the final byte
+            case CSI:
+                if (c == ESC)
+                    return ESCAPE;
+                return c >= 0x20 && c <= 0x3F ? CSI : TEXT; // final byte or a broken sequence
+            case OSC:
+                if (c == '\007')
+                    return TEXT;
+                return c == ESC ? OSC_ESC : OSC;
+            default: // OSC_ESC
+                return c == '\\' ? TEXT : OSC;
+        }
+    }
+}
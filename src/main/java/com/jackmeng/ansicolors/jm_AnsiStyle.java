@@ -0,0 +1,299 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * <h2>jm_AnsiStyle - Precompiled styles</h2>
+ * <p>
+ * An immutable formatting (colors + effects, no content) whose escape code is
+ * built once. Where a {@link jm_Ansi._ansi} is meant to be made, formatted and
+ * thrown away, a style is meant to be kept in a {@code static final} field and
+ * reused for every piece of text it applies to:
+ *
+ * <pre>
+ * static final jm_AnsiStyle ERROR = jm_Ansi.make().bold().red().style();
+ * ...
+ * System.out.println(ERROR.wrap("failed"));
+ * </pre>
+ * </p>
+ * Styles are compared by what they draw, so {@code of(1, 31)} and
+ * {@code of(31, 1)} are equal.
+ *
+ * @author Jack Meng
+ * @see jm_Ansi._ansi#style()
+ */
+public final class jm_AnsiStyle
+{
+    /**
+     * No formatting at all, wrapping text with this returns the text as is.
+     */
+    public static final jm_AnsiStyle NONE = new jm_AnsiStyle(0L);
+
+    /**
+     * Creates a style out of raw ANSI codes the same way
+     * {@link jm_Ansi._ansi#apply(int...)} would.
+     *
+     * @param codes
+     *          ANSI codes (vararg)
+     * @return The style
+     */
+    public static jm_AnsiStyle of(int... codes)
+    {
+        return of_packed(use_Sgr.apply(0L, codes, codes.length));
+    }
+
+    private static final String[] COLOR_NAMES = { "black", "red", "green", "yellow", "blue", "magenta", "cyan",
+            "white" };
+
+    private static final String[] ATTR_NAMES = { "bold", "dim", "italic", "underline", "blink", "blink_fast",
+            "inverse", "hidden", "strike", "framed", "encircled", "overline" };
+
+    /**
+     * Creates a style out of a readable description, the format theme files use.
+     * Words are separated by spaces or commas and are case insensitive:
+     * <ul>
+     * <li>effects - {@code bold dim italic underline blink blink_fast inverse
+     * hidden strike framed encircled overline}</li>
+     * <li>a foreground color - {@code red}, {@code bright_red} ...,
+     * {@code gray}, {@code dark_gray}, a 256 color palette index like
+     * {@code 208} or {@code #ff8800}</li>
+     * <li>a background color - {@code on} followed by a color, or
+     * {@code on_red}</li>
+     * <li>{@code none} - nothing, {@link #NONE} on its own</li>
+     * </ul>
+     *
+     * <pre>
+     * jm_AnsiStyle.parse("bold white on red");
+     * jm_AnsiStyle.parse("italic #8a8a8a");
+     * </pre>
+     *
+     * @throws IllegalArgumentException
+     *           if a word is not understood
+     */
+    public static jm_AnsiStyle parse(String spec)
+    {
+        long style = 0L;
+        String[] words = spec.trim().toLowerCase(Locale.ROOT).split("[\\s,]+");
+        for (int i = 0; i < words.length; i++)
+        {
+            String w = words[i];
+            if (w.isEmpty() || w.equals("none"))
+                continue;
+            int attr = index_of(ATTR_NAMES, w);
+            if (attr >= 0)
+            {
+                style = use_Sgr.with_attrs(style, use_Sgr.attrs(style) | 1 << attr);
+                continue;
+            }
+            boolean bg = false;
+            if (w.equals("on"))
+            {
+                if (++i == words.length)
+                    throw new IllegalArgumentException("'on' needs a color after it in \"" + spec + "\"");
+                w = words[i];
+                bg = true;
+            }
+            else if (w.startsWith("on_"))
+            {
+                w = w.substring(3);
+                bg = true;
+            }
+            int color = parse_color(w);
+            if (color == -1)
+                throw new IllegalArgumentException("unknown style word '" + w + "' in \"" + spec + "\"");
+            style = bg ? use_Sgr.with_bg(style, color) : use_Sgr.with_fg(style, color);
+        }
+        return of_packed(style);
+    }
+
+    /**
+     * @return the packed color or -1
+     */
+    private static int parse_color(String w)
+    {
+        if (w.equals("gray") || w.equals("grey"))
+            return use_Sgr.indexed(7);
+        if (w.equals("dark_gray") || w.equals("dark_grey"))
+            return use_Sgr.indexed(8);
+        boolean bright = w.startsWith("bright_");
+        int named = index_of(COLOR_NAMES, bright ? w.substring(7) : w);
+        if (named >= 0)
+            return use_Sgr.indexed(bright ? named + 8 : named);
+        try
+        {
+            if (w.length() == 7 && w.charAt(0) == '#')
+            {
+                int rgb = Integer.parseInt(w.substring(1), 16);
+                return use_Sgr.rgb(rgb >>> 16, (rgb >>> 8) & 0xFF, rgb & 0xFF);
+            }
+            int index = Integer.parseInt(w);
+            return index >= 0 && index <= 255 ? use_Sgr.indexed(index) : -1;
+        } catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    private static int index_of(String[] names, String w)
+    {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(w))
+                return i;
+        return -1;
+    }
+
+    static jm_AnsiStyle of_packed(long packed)
+    {
+        return packed == 0L ? NONE : new jm_AnsiStyle(packed);
+    }
+
+    private static final int MAX_COMPOSED = 64;
+
+    private final long packed;
+    private final String sgr;
+    private final byte[] sgr_bytes;
+    private volatile ConcurrentHashMap<jm_AnsiStyle, jm_AnsiStyle> composed;
+
+    private jm_AnsiStyle(long packed)
+    {
+        this.packed = packed;
+        this.sgr = packed == 0L ? "" : use_Sgr.sgr(packed);
+        this.sgr_bytes = sgr.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    long packed()
+    {
+        return packed;
+    }
+
+    /**
+     * The same as {@link #sgr()} already encoded, callers must not modify it
+     */
+    byte[] sgr_bytes()
+    {
+        return sgr_bytes;
+    }
+
+    /**
+     * @return The escape code that starts this style, empty for {@link #NONE}
+     */
+    public String sgr()
+    {
+        return sgr;
+    }
+
+    /**
+     * Formats a piece of text with this style followed by a RESET. Like
+     * {@link jm_Ansi._ansi#toString()}, the text is returned as is if
+     * {@link jm_Ansi#use_ansi()} is off.
+     *
+     * @param text
+     *          The payload
+     * @return The formatted payload
+     */
+    public String wrap(CharSequence text)
+    {
+        return wrap(text, new StringBuilder(text.length() + sgr.length() + 4)).toString();
+    }
+
+    /**
+     * Same as {@link #wrap(CharSequence)} but appends to an existing buffer
+     *
+     * @return {@code out}
+     */
+    public StringBuilder wrap(CharSequence text, StringBuilder out)
+    {
+        if (packed == 0L || !jm_Ansi.use_ansi())
+            return out.append(text);
+        if (jm_AnsiMetrics.on)
+            jm_AnsiMetrics.rendered(sgr.length() + 4, text.length());
+        return out.append(sgr).append(text).append(jm_Ansi.reset());
+    }
+
+    /**
+     * Composes two styles the way nesting draws them: {@code inner}'s effects
+     * are added to these and its colors replace these unless they are the
+     * default. {@code RED.with(BOLD)} is bold red, {@code RED.with(BLUE)} is
+     * blue.
+     * <p>
+     * Results are remembered per pair, composing the same two styles again
+     * does not build a new one.
+     * </p>
+     *
+     * @param inner
+     *          The style drawn inside this one
+     * @return The composed style
+     * @see jm_AnsiSpans
+     */
+    public jm_AnsiStyle with(jm_AnsiStyle inner)
+    {
+        if (inner.packed == 0L || inner == this)
+            return this;
+        if (packed == 0L)
+            return inner;
+        ConcurrentHashMap<jm_AnsiStyle, jm_AnsiStyle> c = composed;
+        if (c == null)
+            composed = c = new ConcurrentHashMap<>(8);
+        jm_AnsiStyle r = c.get(inner);
+        if (r != null)
+        {
+            jm_AnsiMetrics.hit();
+            return r;
+        }
+        jm_AnsiMetrics.miss("style-with", inner);
+        long merged = use_Sgr.merge(packed, inner.packed);
+        r = merged == packed ? this : merged == inner.packed ? inner : new jm_AnsiStyle(merged);
+        if (c.size() < MAX_COMPOSED)
+            c.put(inner, r);
+        return r;
+    }
+
+    /**
+     * @return {@code payload} in this style, rendered only when it is used
+     * @see jm_AnsiLazy
+     */
+    public jm_AnsiLazy lazy(Object payload)
+    {
+        return jm_AnsiLazy.of(this, payload);
+    }
+
+    /**
+     * @return What {@code payload} gives in this style, called only when it is
+     *         used
+     */
+    public jm_AnsiLazy lazy(Supplier<?> payload)
+    {
+        return jm_AnsiLazy.of(this, payload);
+    }
+
+    /**
+     * For debugging purposes. Displays the escape code with the ESC character
+     * escaped.
+     *
+     * @return String
+     */
+    public String escaped()
+    {
+        return sgr.replace("\033", "\\033");
+    }
+
+    @Override public boolean equals(Object o)
+    {
+        return o instanceof jm_AnsiStyle && ((jm_AnsiStyle) o).packed == packed;
+    }
+
+    @Override public int hashCode()
+    {
+        return Long.hashCode(packed);
+    }
+
+    @Override public String toString()
+    {
+        return "jm_AnsiStyle[" + escaped() + "]";
+    }
+}
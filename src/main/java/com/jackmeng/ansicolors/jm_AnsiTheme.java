@@ -0,0 +1,269 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>jm_AnsiTheme - Named color roles</h2>
+ * <p>
+ * Instead of writing {@code red_fg()} where an error is printed, code asks for
+ * the {@code error} role and the active theme decides what that looks like:
+ *
+ * <pre>
+ * static final jm_AnsiTheme._role ERROR = jm_AnsiTheme.role("error");
+ * ...
+ * System.out.println(ERROR.wrap("failed"));
+ * </pre>
+ * </p>
+ * <p>
+ * A theme is an immutable snapshot of precompiled {@link jm_AnsiStyle}s, one
+ * per role. The active theme sits behind a single volatile reference so
+ * {@link #use(jm_AnsiTheme)} swaps every role at once, and a role knows its
+ * slot in the snapshot so looking one up is a volatile read and an array
+ * index, no map and no string work.
+ * </p>
+ * <p>
+ * Themes can be loaded from a properties file where every key is a role and
+ * every value is in the {@link jm_AnsiStyle#parse(String)} format:
+ *
+ * <pre>
+ * error = bold bright_red
+ * warn = yellow
+ * accent = #5fafff
+ * muted = dark_gray
+ * </pre>
+ * </p>
+ *
+ * @author Jack Meng
+ */
+public final class jm_AnsiTheme
+{
+    /**
+     * A named role, a handle that is meant to be kept in a {@code static final}
+     * field. Two calls to {@link #role(String)} with the same name give the same
+     * instance.
+     */
+    public static final class _role
+    {
+        private final String name;
+        private final int slot;
+
+        private _role(String name, int slot)
+        {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public String name()
+        {
+            return name;
+        }
+
+        /**
+         * @return This role's style in the active theme, {@link jm_AnsiStyle#NONE}
+         *         if the theme does not set it
+         */
+        public jm_AnsiStyle style()
+        {
+            return current.style(this);
+        }
+
+        /**
+         * {@link jm_AnsiStyle#wrap(CharSequence)} with the active theme's style
+         */
+        public String wrap(CharSequence text)
+        {
+            return style().wrap(text);
+        }
+
+        public StringBuilder wrap(CharSequence text, StringBuilder out)
+        {
+            return style().wrap(text, out);
+        }
+
+        @Override public String toString()
+        {
+            return "jm_AnsiTheme._role[" + name + "]";
+        }
+    }
+
+    private static final Map<String, _role> ROLES = new ConcurrentHashMap<>();
+
+    /**
+     * Roles by slot, only grown while holding the {@link #ROLES} lock
+     */
+    private static volatile _role[] by_slot = new _role[0];
+
+    /**
+     * @param name
+     *          Role name, case sensitive
+     * @return The role with that name, created on first use
+     */
+    public static _role role(String name)
+    {
+        _role r = ROLES.get(name);
+        if (r != null)
+            return r;
+        synchronized (ROLES)
+        {
+            r = ROLES.get(Objects.requireNonNull(name));
+            if (r == null)
+            {
+                _role[] slots = by_slot;
+                r = new _role(name, slots.length);
+                slots = Arrays.copyOf(slots, slots.length + 1);
+                slots[r.slot] = r;
+                by_slot = slots;
+                ROLES.put(name, r);
+            }
+            return r;
+        }
+    }
+
+    public static final _role ERROR = role("error");
+    public static final _role WARN = role("warn");
+    public static final _role INFO = role("info");
+    public static final _role SUCCESS = role("success");
+    public static final _role ACCENT = role("accent");
+    public static final _role MUTED = role("muted");
+    public static final _role EMPHASIS = role("emphasis");
+    public static final _role LINK = role("link");
+
+    /**
+     * The theme active when nothing else is set
+     */
+    public static final jm_AnsiTheme DEFAULT = make().with(ERROR, jm_AnsiStyle.of(1, 31))
+            .with(WARN, jm_AnsiStyle.of(33)).with(INFO, jm_AnsiStyle.of(36)).with(SUCCESS, jm_AnsiStyle.of(32))
+            .with(ACCENT, jm_AnsiStyle.of(35)).with(MUTED, jm_AnsiStyle.of(90)).with(EMPHASIS, jm_AnsiStyle.of(1))
+            .with(LINK, jm_AnsiStyle.of(4, 34));
+
+    private static volatile jm_AnsiTheme current = DEFAULT;
+
+    /**
+     * @return The active theme
+     */
+    public static jm_AnsiTheme current()
+    {
+        return current;
+    }
+
+    /**
+     * Makes {@code theme} the active one, every role follows immediately
+     */
+    public static void use(jm_AnsiTheme theme)
+    {
+        current = Objects.requireNonNull(theme);
+    }
+
+    /**
+     * @return A theme that sets no role
+     */
+    public static jm_AnsiTheme make()
+    {
+        return new jm_AnsiTheme(new jm_AnsiStyle[0]);
+    }
+
+    /**
+     * Loads a theme on top of {@link #DEFAULT}
+     *
+     * @throws IllegalArgumentException
+     *           if a value is not a valid style, the message names the role
+     */
+    public static jm_AnsiTheme load(Properties p)
+    {
+        jm_AnsiStyle[] styles = DEFAULT.styles;
+        for (String key : p.stringPropertyNames())
+        {
+            _role r = role(key.trim());
+            try
+            {
+                styles = set(styles, r, jm_AnsiStyle.parse(p.getProperty(key)));
+            } catch (IllegalArgumentException e)
+            {
+                throw new IllegalArgumentException("role '" + r.name + "': " + e.getMessage(), e);
+            }
+        }
+        return new jm_AnsiTheme(styles);
+    }
+
+    public static jm_AnsiTheme load(Reader in) throws IOException
+    {
+        Properties p = new Properties();
+        p.load(in);
+        return load(p);
+    }
+
+    /**
+     * Loads a UTF-8 properties file
+     */
+    public static jm_AnsiTheme load(Path file) throws IOException
+    {
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            return load(in);
+        }
+    }
+
+    private final jm_AnsiStyle[] styles;
+
+    private jm_AnsiTheme(jm_AnsiStyle[] styles)
+    {
+        this.styles = styles;
+    }
+
+    /**
+     * @return A copy of this theme with {@code role} set to {@code style}
+     */
+    public jm_AnsiTheme with(_role role, jm_AnsiStyle style)
+    {
+        return new jm_AnsiTheme(set(styles, role, Objects.requireNonNull(style)));
+    }
+
+    public jm_AnsiTheme with(String role, jm_AnsiStyle style)
+    {
+        return with(role(role), style);
+    }
+
+    private static jm_AnsiStyle[] set(jm_AnsiStyle[] styles, _role role, jm_AnsiStyle style)
+    {
+        jm_AnsiStyle[] s = Arrays.copyOf(styles, Math.max(styles.length, role.slot + 1));
+        s[role.slot] = style;
+        return s;
+    }
+
+    /**
+     * @return The style of {@code role} in this theme, {@link jm_AnsiStyle#NONE}
+     *         if it is not set
+     */
+    public jm_AnsiStyle style(_role role)
+    {
+        jm_AnsiStyle[] s = styles;
+        jm_AnsiStyle r = role.slot < s.length ? s[role.slot] : null;
+        return r == null ? jm_AnsiStyle.NONE : r;
+    }
+
+    /**
+     * @return Every role this theme sets, in slot order
+     */
+    public Map<String, jm_AnsiStyle> roles()
+    {
+        _role[] slots = by_slot;
+        Map<String, jm_AnsiStyle> m = new LinkedHashMap<>();
+        for (int i = 0; i < styles.length; i++)
+            if (styles[i] != null)
+                m.put(slots[i].name, styles[i]);
+        return Collections.unmodifiableMap(m);
+    }
+}
@@ -0,0 +1,477 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <h2>jm_AnsiTrace - Colored stack traces</h2>
+ * <p>
+ * Renders a {@link Throwable} the way {@link Throwable#printStackTrace()} does,
+ * but colored by where each frame comes from. The frames are read straight
+ * from {@link Throwable#getStackTrace()} and encoded into a reused per thread
+ * byte buffer that is handed to the sink in one write, so rendering thousands
+ * of traces per second does not turn into thousands of Strings per second.
+ * </p>
+ * <p>
+ * Frames are put into one of four groups by the longest matching package
+ * prefix:
+ * <ul>
+ * <li>app - your own code, see {@link #app(String...)}</li>
+ * <li>framework - libraries you want to tell apart, see
+ * {@link #framework(String...)}</li>
+ * <li>jdk - {@code java.}, {@code javax.}, {@code jdk.}, {@code sun.} and
+ * {@code com.sun.} by default</li>
+ * <li>other - everything else</li>
+ * </ul>
+ * Groups can be folded so runs of frames from them collapse into a single
+ * line. Recursion (the same frame or the same few frames over and over) is
+ * always collapsed, and frames shared with the enclosing trace become
+ * {@code ... n more} like the JDK does.
+ * </p>
+ *
+ * <pre>
+ * static final jm_AnsiTrace TRACE = jm_AnsiTrace.make().app("com.mycorp").framework("io.netty").fold_jdk();
+ * ...
+ * TRACE.print(e, System.err);
+ * </pre>
+ *
+ * @author Jack Meng
+ * @see jm_AnsiStyle
+ */
+public final class jm_AnsiTrace
+{
+    private static final int APP = 0, FRAMEWORK = 1, JDK = 2, OTHER = 3;
+    private static final String[] GROUP_NAMES = { "app", "framework", "jdk", "other" };
+
+    /**
+     * Longest block of frames checked for repetition
+     */
+    private static final int MAX_PERIOD = 8;
+
+    /**
+     * Class names are cached up to this many entries
+     */
+    private static final int MAX_CACHED = 4096;
+
+    /**
+     * Buffers bigger than this are not kept around after a render
+     */
+    private static final int KEEP_BUFFER = 1 << 16;
+
+    private static final ThreadLocal<use_Bytes> BUFFERS = ThreadLocal.withInitial(() -> new use_Bytes(4096));
+
+    /**
+     * @return A renderer with the default styles and only the JDK group set up
+     */
+    public static jm_AnsiTrace make()
+    {
+        return new jm_AnsiTrace();
+    }
+
+    private volatile String[] prefixes = { "java.", "javax.", "jdk.", "sun.", "com.sun." };
+    private volatile int[] prefix_groups = { JDK, JDK, JDK, JDK, JDK };
+    private final ConcurrentHashMap<String, Integer> groups_cache = new ConcurrentHashMap<>();
+
+    private final jm_AnsiStyle[] frame_styles = { jm_AnsiStyle.of(1), jm_AnsiStyle.of(36), jm_AnsiStyle.of(90), jm_AnsiStyle.NONE };
+    private final boolean[] folded = new boolean[4];
+    private jm_AnsiStyle exception_style = jm_AnsiStyle.of(1, 31), message_style = jm_AnsiStyle.NONE,
+            location_style = jm_AnsiStyle.of(2), note_style = jm_AnsiStyle.of(2, 3);
+
+    private jm_AnsiTrace()
+    {
+    }
+
+    /**
+     * Package prefixes of your own code, for example {@code "com.mycorp."}
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace app(String... prefixes)
+    {
+        return group(APP, prefixes);
+    }
+
+    /**
+     * Package prefixes of libraries that should stand out from your code
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace framework(String... prefixes)
+    {
+        return group(FRAMEWORK, prefixes);
+    }
+
+    /**
+     * Extra package prefixes to count as part of the JDK
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace jdk(String... prefixes)
+    {
+        return group(JDK, prefixes);
+    }
+
+    public jm_AnsiTrace app_style(jm_AnsiStyle style)
+    {
+        frame_styles[APP] = Objects.requireNonNull(style);
+        return this;
+    }
+
+    public jm_AnsiTrace framework_style(jm_AnsiStyle style)
+    {
+        frame_styles[FRAMEWORK] = Objects.requireNonNull(style);
+        return this;
+    }
+
+    public jm_AnsiTrace jdk_style(jm_AnsiStyle style)
+    {
+        frame_styles[JDK] = Objects.requireNonNull(style);
+        return this;
+    }
+
+    public jm_AnsiTrace other_style(jm_AnsiStyle style)
+    {
+        frame_styles[OTHER] = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * Style of the exception class name in the header line
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace exception_style(jm_AnsiStyle style)
+    {
+        exception_style = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * Style of the exception message in the header line
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace message_style(jm_AnsiStyle style)
+    {
+        message_style = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * Style of the {@code (File.java:12)} part of each frame
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace location_style(jm_AnsiStyle style)
+    {
+        location_style = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * Style of the {@code ... n more} style notes
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace note_style(jm_AnsiStyle style)
+    {
+        note_style = Objects.requireNonNull(style);
+        return this;
+    }
+
+    /**
+     * Collapse runs of JDK frames into a single line
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace fold_jdk()
+    {
+        folded[JDK] = true;
+        return this;
+    }
+
+    /**
+     * Collapse runs of framework frames into a single line
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace fold_framework()
+    {
+        folded[FRAMEWORK] = true;
+        return this;
+    }
+
+    /**
+     * Collapse runs of frames that are in no group into a single line
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiTrace fold_other()
+    {
+        folded[OTHER] = true;
+        return this;
+    }
+
+    private synchronized jm_AnsiTrace group(int group, String... add)
+    {
+        String[] p = Arrays.copyOf(prefixes, prefixes.length + add.length);
+        int[] g = Arrays.copyOf(prefix_groups, p.length);
+        for (int i = 0; i < add.length; i++)
+        {
+            p[prefixes.length + i] = Objects.requireNonNull(add[i]);
+            g[prefixes.length + i] = group;
+        }
+        prefix_groups = g;
+        prefixes = p;
+        groups_cache.clear();
+        return this;
+    }
+
+    /**
+     * Renders the trace straight to a stream, for example {@link System#err}.
+     *
+     * @param t
+     *          What to render
+     * @param out
+     *          Where to write it, receives a single write call
+     */
+    public void print(Throwable t, OutputStream out)
+    {
+        use_Bytes b = BUFFERS.get().clear();
+        render(t, b);
+        b.write_to(out);
+        if (b.a.length > KEEP_BUFFER)
+            BUFFERS.remove();
+    }
+
+    /**
+     * @param t
+     *          What to render
+     * @return The rendered trace
+     */
+    public String render(Throwable t)
+    {
+        use_Bytes b = BUFFERS.get().clear();
+        render(t, b);
+        String s = b.toString();
+        if (b.a.length > KEEP_BUFFER)
+            BUFFERS.remove();
+        return s;
+    }
+
+    void render(Throwable t, use_Bytes out)
+    {
+        new _pass(out, jm_Ansi.use_ansi()).throwable(t, null, "", "");
+    }
+
+    private int group_of(String class_name)
+    {
+        Integer cached = groups_cache.get(class_name);
+        if (cached != null)
+        {
+            jm_AnsiMetrics.hit();
+            return cached;
+        }
+        jm_AnsiMetrics.miss("trace-groups", class_name);
+        String[] p = prefixes;
+        int[] g = prefix_groups;
+        int best = OTHER, best_len = -1;
+        for (int i = 0; i < p.length; i++)
+            if (p[i].length() > best_len && class_name.startsWith(p[i]))
+            {
+                best = g[i];
+                best_len = p[i].length();
+            }
+        if (groups_cache.size() < MAX_CACHED)
+            groups_cache.put(class_name, best);
+        return best;
+    }
+
+    /**
+     * A single render, mirrors {@link Throwable#printStackTrace()}
+     */
+    private final class _pass
+    {
+        final use_Bytes out;
+        final boolean color;
+        Throwable[] seen = new Throwable[8];
+        int n_seen;
+        boolean open;
+
+        _pass(use_Bytes out, boolean color)
+        {
+            this.out = out;
+            this.color = color;
+        }
+
+        void throwable(Throwable t, StackTraceElement[] enclosing, String caption, String prefix)
+        {
+            for (int i = 0; i < n_seen; i++)
+                if (seen[i] == t)
+                {
+                    out.utf8(prefix).utf8(caption);
+                    styled(note_style).utf8("[CIRCULAR REFERENCE: ").utf8(t.toString()).ascii(']');
+                    end().ascii('\n');
+                    return;
+                }
+            if (n_seen == seen.length)
+                seen = Arrays.copyOf(seen, n_seen << 1);
+            seen[n_seen++] = t;
+
+            StackTraceElement[] trace = t.getStackTrace();
+            out.utf8(prefix).utf8(caption);
+            header(t);
+
+            // frames in common with the enclosing trace
+            int m = trace.length - 1;
+            if (enclosing != null)
+            {
+                int k = enclosing.length - 1;
+                while (m >= 0 && k >= 0 && trace[m].equals(enclosing[k]))
+                {
+                    m--;
+                    k--;
+                }
+            }
+            int common = trace.length - 1 - m;
+            frames(trace, m + 1, prefix);
+            if (common != 0)
+            {
+                note(prefix).utf8("... ").decimal(common).utf8(" more");
+                end().ascii('\n');
+            }
+
+            for (Throwable s : t.getSuppressed())
+                throwable(s, trace, "Suppressed: ", prefix + "\t");
+            Throwable cause = t.getCause();
+            if (cause != null)
+                throwable(cause, trace, "Caused by: ", prefix);
+        }
+
+        private void header(Throwable t)
+        {
+            styled(exception_style).utf8(t.getClass().getName());
+            end();
+            String msg = t.getLocalizedMessage();
+            if (msg != null)
+            {
+                out.utf8(": ");
+                styled(message_style).utf8(msg);
+                end();
+            }
+            out.ascii('\n');
+        }
+
+        private void frames(StackTraceElement[] trace, int count, String prefix)
+        {
+            int i = 0;
+            while (i < count)
+            {
+                int group = group_of(trace[i].getClassName());
+                if (folded[group])
+                {
+                    int j = i + 1;
+                    while (j < count && group_of(trace[j].getClassName()) == group)
+                        j++;
+                    if (j - i > 1)
+                    {
+                        note(prefix).utf8("... ").decimal(j - i).ascii(' ').utf8(GROUP_NAMES[group]).utf8(" frames");
+                        end().ascii('\n');
+                        i = j;
+                        continue;
+                    }
+                }
+                // recursion, pick the block length that hides the most frames
+                int best_period = 0, best_repeats = 0;
+                for (int p = 1; p <= MAX_PERIOD && i + 2 * p <= count; p++)
+                {
+                    int repeats = 1;
+                    while (i + (repeats + 1) * p <= count && same(trace, i, i + repeats * p, p))
+                        repeats++;
+                    if (repeats > 1 && (repeats - 1) * p > (best_repeats - 1) * best_period)
+                    {
+                        best_period = p;
+                        best_repeats = repeats;
+                    }
+                }
+                if (best_period != 0 && (best_repeats - 1) * best_period > 1)
+                {
+                    for (int k = 0; k < best_period; k++)
+                        frame(trace[i + k], prefix);
+                    note(prefix).utf8("... previous ");
+                    if (best_period == 1)
+                        out.utf8("frame");
+                    else
+                        out.decimal(best_period).utf8(" frames");
+                    out.utf8(" repeated ").decimal(best_repeats - 1).utf8(best_repeats == 2 ? " more time" : " more times");
+                    end().ascii('\n');
+                    i += best_period * best_repeats;
+                }
+                else
+                    frame(trace[i++], prefix);
+            }
+        }
+
+        private boolean same(StackTraceElement[] trace, int a, int b, int len)
+        {
+            for (int k = 0; k < len; k++)
+                if (!trace[a + k].equals(trace[b + k]))
+                    return false;
+            return true;
+        }
+
+        private void frame(StackTraceElement e, String prefix)
+        {
+            out.utf8(prefix).utf8("\tat ");
+            styled(frame_styles[group_of(e.getClassName())]);
+            String module = e.getModuleName();
+            if (module != null)
+                out.utf8(module).ascii('/');
+            out.utf8(e.getClassName()).ascii('.').utf8(e.getMethodName());
+            end();
+            styled(location_style).ascii('(');
+            if (e.isNativeMethod())
+                out.utf8("Native Method");
+            else if (e.getFileName() == null)
+                out.utf8("Unknown Source");
+            else
+            {
+                out.utf8(e.getFileName());
+                if (e.getLineNumber() >= 0)
+                    out.ascii(':').decimal(e.getLineNumber());
+            }
+            out.ascii(')');
+            end().ascii('\n');
+        }
+
+        private use_Bytes note(String prefix)
+        {
+            out.utf8(prefix).ascii('\t');
+            return styled(note_style);
+        }
+
+        private use_Bytes styled(jm_AnsiStyle s)
+        {
+            if (color && s != jm_AnsiStyle.NONE)
+            {
+                out.put(s.sgr_bytes());
+                open = true;
+            }
+            return out;
+        }
+
+        private use_Bytes end()
+        {
+            if (open)
+            {
+                out.utf8(jm_Ansi.reset());
+                open = false;
+            }
+            return out;
+        }
+    }
+}
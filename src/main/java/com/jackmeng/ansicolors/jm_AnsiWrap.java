@@ -0,0 +1,483 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <h2>jm_AnsiWrap - Style aware wrapping and truncating</h2>
+ * <p>
+ * Wraps or truncates text that was already formatted (for example the result
+ * of {@link jm_Ansi._ansi#toString()}) to a fixed number of columns without
+ * cutting escape codes in half. The active style is closed with a RESET before
+ * every line break and restored on the next line right before the first
+ * visible character, only emitting the codes that actually changed.
+ * </p>
+ * <p>
+ * Everything happens in a single pass and the input can be handed over in as
+ * many pieces as you like, so this can sit directly in front of a stream:
+ *
+ * <pre>
+ * jm_AnsiWrap w = jm_AnsiWrap.make(System.out, 80);
+ * w.write(jm_Ansi.make(longMessage).red().toString()).write("\n");
+ * w.end();
+ * </pre>
+ * </p>
+ * <p>
+ * The wrapper has three modes:
+ * <ul>
+ * <li>{@link #word_wrap()} - (default) breaks on spaces, words longer than a
+ * line are hard broken</li>
+ * <li>{@link #char_wrap()} - breaks exactly at the width</li>
+ * <li>{@link #truncate(String)} - cuts every line at the width and marks the
+ * cut with an ellipsis</li>
+ * </ul>
+ * Every character counts as a single column (surrogate pairs count once) and
+ * tabs are expanded to the next multiple of 8.
+ * </p>
+ * <strong>[!] Instances are not thread safe [!]</strong>
+ *
+ * @author Jack Meng
+ * @see jm_Ansi
+ */
+public final class jm_AnsiWrap implements Flushable
+{
+    private static final int WORD = 0, CHAR = 1, TRUNCATE = 2;
+
+    /**
+     * Marks a buffered character that belongs to a pass-through escape sequence
+     * and has no width. Not a valid packed style as color kind 3 is never used.
+     */
+    private static final long RAW = -1L;
+
+    /**
+     * Wraps an already formatted String in one go.
+     *
+     * @param text
+     *          Formatted (or plain) text
+     * @param width
+     *          Number of columns per line
+     * @return The wrapped text
+     */
+    public static String wrap(CharSequence text, int width)
+    {
+        StringBuilder sb = new StringBuilder(text.length() + text.length() / Math.max(1, width) * 6 + 8);
+        make(sb, width).write(text).end();
+        return sb.toString();
+    }
+
+    /**
+     * Truncates every line of an already formatted String in one go.
+     *
+     * @param text
+     *          Formatted (or plain) text
+     * @param width
+     *          Number of columns per line
+     * @param ellipsis
+     *          What to put where a line was cut, can be empty
+     * @return The truncated text
+     */
+    public static String truncate(CharSequence text, int width, String ellipsis)
+    {
+        StringBuilder sb = new StringBuilder(Math.min(text.length(), 256));
+        make(sb, width).truncate(ellipsis).write(text).end();
+        return sb.toString();
+    }
+
+    /**
+     * Grab a wrapper that writes to the given destination. Output is handed to
+     * {@code out} once per {@link #write(CharSequence)} call.
+     *
+     * @param out
+     *          Destination, for example {@link System#out} or a
+     *          {@link StringBuilder}
+     * @param width
+     *          Number of columns per line, must be at least 1
+     * @return A wrapper in {@link #word_wrap()} mode
+     */
+    public static jm_AnsiWrap make(Appendable out, int width)
+    {
+        return new jm_AnsiWrap(out, width);
+    }
+
+    private final Appendable out;
+    private final int width;
+    private final StringBuilder buf = new StringBuilder(128);
+    private final use_AnsiScan scan = new use_AnsiScan() {
+        @Override void on_char(char c)
+        {
+            visible(c);
+        }
+
+        @Override void on_sgr(int[] p, int n)
+        {
+            style = use_Sgr.apply(style, p, n);
+        }
+
+        @Override void on_escape(CharSequence seq)
+        {
+            escape(seq);
+        }
+    };
+
+    private int mode = WORD;
+    private String ellipsis = "";
+
+    private long style, emitted;
+    private int col;
+
+    // WORD: pending run of spaces followed by a word
+    // TRUNCATE: characters that sit where the ellipsis would go
+    private char[] seg_c = new char[32];
+    private long[] seg_s = new long[32];
+    private int seg_n, seg_lead, seg_word;
+
+    private boolean cut, last_held;
+
+    private jm_AnsiWrap(Appendable out, int width)
+    {
+        if (width < 1)
+            throw new IllegalArgumentException("width must be at least 1, got " + width);
+        this.out = Objects.requireNonNull(out);
+        this.width = width;
+    }
+
+    /**
+     * Break lines on spaces, this is the default.
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiWrap word_wrap()
+    {
+        return mode(WORD);
+    }
+
+    /**
+     * Break lines exactly at the width no matter what is there.
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiWrap char_wrap()
+    {
+        return mode(CHAR);
+    }
+
+    /**
+     * Instead of wrapping, drop everything past the width on each line.
+     *
+     * @param ellipsis
+     *          What to put where a line was cut (e.g. {@code "..."}), can be
+     *          empty. Drawn with the style of the first character it replaces.
+     * @return Instance for cascading
+     */
+    public jm_AnsiWrap truncate(String ellipsis)
+    {
+        this.ellipsis = ellipsis.length() > width ? ellipsis.substring(0, width) : ellipsis;
+        return mode(TRUNCATE);
+    }
+
+    private jm_AnsiWrap mode(int mode)
+    {
+        if (col != 0 || seg_n != 0)
+            throw new IllegalStateException("Mode must be set before writing");
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Feed more text. Escape codes may be split across calls.
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiWrap write(CharSequence s)
+    {
+        return write(s, 0, s.length());
+    }
+
+    public jm_AnsiWrap write(CharSequence s, int start, int end)
+    {
+        scan.feed(s, start, end);
+        return drain();
+    }
+
+    public jm_AnsiWrap write(char c)
+    {
+        scan.feed(c);
+        return drain();
+    }
+
+    /**
+     * Places whatever is still pending on the current line and RESETs the style
+     * if anything is still active. The wrapper can keep being used after this,
+     * the next visible character restores the style.
+     *
+     * @return Instance for cascading
+     */
+    public jm_AnsiWrap end()
+    {
+        finish_line();
+        close_style();
+        return drain();
+    }
+
+    /**
+     * Flushes the destination if it can be flushed. Text still waiting for the
+     * end of its word is <b>not</b> forced out, use {@link #end()} for that.
+     */
+    @Override public void flush()
+    {
+        drain();
+        if (out instanceof Flushable)
+            try
+            {
+                ((Flushable) out).flush();
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+    }
+
+    /**
+     * @return The current column on the line being written
+     */
+    public int column()
+    {
+        return col;
+    }
+
+    /**
+     * Where the next character would land, counting what is still buffered
+     */
+    private int position()
+    {
+        if (mode != WORD)
+            return col;
+        int p = col + seg_lead + seg_word;
+        return p <= width ? p : seg_word;
+    }
+
+    private jm_AnsiWrap drain()
+    {
+        if (buf.length() > 0)
+        {
+            try
+            {
+                out.append(buf);
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            buf.setLength(0);
+        }
+        return this;
+    }
+
+    private void visible(char c)
+    {
+        if (c == '\n')
+        {
+            finish_line();
+            line_break();
+        }
+        else if (c == '\t')
+            for (int n = 8 - position() % 8; n > 0; n--)
+                visible(' ');
+        else if (c < 0x20 || c == 0x7F)
+            escape(String.valueOf(c)); // \r, bells ... have no width
+        else if (mode == WORD)
+            word(c);
+        else if (mode == CHAR)
+        {
+            if (col >= width && !Character.isLowSurrogate(c))
+                line_break();
+            emit(c, style);
+            if (!Character.isLowSurrogate(c))
+                col++;
+        }
+        else
+            truncated(c);
+    }
+
+    private void escape(CharSequence seq)
+    {
+        if (mode == CHAR)
+            buf.append(seq);
+        else if (mode == WORD)
+            for (int i = 0; i < seq.length(); i++)
+                push(seq.charAt(i), RAW);
+        else if (!cut)
+        {
+            if (seg_n > 0)
+                for (int i = 0; i < seq.length(); i++)
+                    push(seq.charAt(i), RAW);
+            else
+                buf.append(seq);
+        }
+    }
+
+    private void word(char c)
+    {
+        if (c == ' ')
+        {
+            if (seg_word > 0)
+                place();
+            push(c, style);
+            seg_lead++;
+        }
+        else if (Character.isLowSurrogate(c))
+            push(c, style);
+        else
+        {
+            if (seg_word >= width)
+                place();
+            push(c, style);
+            seg_word++;
+        }
+    }
+
+    /**
+     * Puts the pending spaces + word on the current line if they fit, otherwise
+     * on the next one without the spaces.
+     */
+    private void place()
+    {
+        if (col + seg_lead + seg_word <= width)
+        {
+            emit_segment(Integer.MAX_VALUE);
+            col += seg_lead + seg_word;
+        }
+        else if (col == 0)
+        {
+            // indentation on a fresh line, keep as much of it as fits
+            int keep = Math.max(0, width - seg_word);
+            emit_segment(keep);
+            col = Math.min(keep, seg_lead) + seg_word;
+        }
+        else
+        {
+            line_break();
+            emit_segment(0);
+            col = seg_word;
+        }
+        seg_n = seg_lead = seg_word = 0;
+    }
+
+    /**
+     * @param spaces
+     *          how many of the leading spaces to keep
+     */
+    private void emit_segment(int spaces)
+    {
+        for (int i = 0, lead = 0; i < seg_n; i++)
+        {
+            long s = seg_s[i];
+            if (s != RAW && lead < seg_lead && seg_c[i] == ' ')
+                if (lead++ >= spaces)
+                    continue;
+            emit(seg_c[i], s);
+        }
+    }
+
+    private void truncated(char c)
+    {
+        boolean low = Character.isLowSurrogate(c);
+        if (cut)
+            return;
+        if (low ? !last_held : col < width - ellipsis.length())
+        {
+            emit(c, style);
+            if (!low)
+                col++;
+            last_held = false;
+        }
+        else if (low || col < width)
+        {
+            push(c, style);
+            if (!low)
+                col++;
+            last_held = true;
+        }
+        else
+        {
+            cut = true;
+            long s = style;
+            for (int i = 0; i < seg_n; i++)
+                if (seg_s[i] != RAW)
+                {
+                    s = seg_s[i];
+                    break;
+                }
+            for (int i = 0; i < seg_n; i++)
+                if (seg_s[i] == RAW)
+                    buf.append(seg_c[i]);
+            for (int i = 0; i < ellipsis.length(); i++)
+                emit(ellipsis.charAt(i), s);
+            seg_n = 0;
+        }
+    }
+
+    private void finish_line()
+    {
+        if (mode == WORD)
+        {
+            if (seg_word > 0)
+                place();
+            else
+            {
+                int fit = Math.max(0, width - col);
+                emit_segment(fit);
+                col += Math.min(fit, seg_lead);
+                seg_n = seg_lead = 0;
+            }
+        }
+        else if (mode == TRUNCATE)
+        {
+            if (!cut)
+                for (int i = 0; i < seg_n; i++)
+                    emit(seg_c[i], seg_s[i]);
+            seg_n = 0;
+            cut = last_held = false;
+        }
+    }
+
+    private void line_break()
+    {
+        close_style();
+        buf.append('\n');
+        col = 0;
+    }
+
+    private void close_style()
+    {
+        if (emitted != 0L)
+        {
+            buf.append(jm_Ansi.reset());
+            emitted = 0L;
+        }
+    }
+
+    private void emit(char c, long s)
+    {
+        if (s != RAW && s != emitted)
+        {
+            use_Sgr.diff(emitted, s, buf);
+            emitted = s;
+        }
+        buf.append(c);
+    }
+
+    private void push(char c, long s)
+    {
+        if (seg_n == seg_c.length)
+        {
+            seg_c = Arrays.copyOf(seg_c, seg_n << 1);
+            seg_s = Arrays.copyOf(seg_s, seg_n << 1);
+        }
+        seg_c[seg_n] = c;
+        seg_s[seg_n++] = s;
+    }
+}
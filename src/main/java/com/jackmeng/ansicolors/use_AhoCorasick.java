@@ -0,0 +1,223 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable Aho-Corasick automaton over {@code char}s. ASCII transitions are a
+ * fully resolved table (one array read per character), everything else falls
+ * back to sorted per state edges and failure links.
+ *
+ * @author Jack Meng
+ */
+final class use_AhoCorasick
+{
+    private static final int ASCII = 128;
+
+    private final int[] ascii; // [state * ASCII + c] -> next state
+    private final char[][] wide_keys; // per state, sorted non ASCII edge labels
+    private final int[][] wide_next;
+    private final int[] fail;
+    private final int[] term_len, term_id; // match ending exactly at this state, 0 if none
+    private final int[] dict; // closest proper suffix state that is a match, -1 if none
+    private final boolean fold;
+    final int max_len;
+
+    /**
+     * @param words
+     *          the keywords, the index is what is reported back as the id.
+     *          Duplicates resolve to the last index.
+     * @param fold
+     *          match case insensitively
+     */
+    use_AhoCorasick(String[] words, boolean fold)
+    {
+        this.fold = fold;
+        Map<Long, Integer> edges = new HashMap<>();
+        int states = 1, longest = 0;
+        int[] len = new int[16], id = new int[16];
+        for (int w = 0; w < words.length; w++)
+        {
+            String word = words[w];
+            if (word.isEmpty())
+                throw new IllegalArgumentException("Keywords cannot be empty");
+            int s = 0;
+            for (int i = 0; i < word.length(); i++)
+            {
+                long key = ((long) s << 16) | fold(word.charAt(i));
+                Integer next = edges.get(key);
+                if (next == null)
+                {
+                    next = states++;
+                    edges.put(key, next);
+                }
+                s = next;
+            }
+            if (s >= len.length)
+            {
+                len = Arrays.copyOf(len, Math.max(s + 1, len.length << 1));
+                id = Arrays.copyOf(id, len.length);
+            }
+            len[s] = word.length();
+            id[s] = w;
+            longest = Math.max(longest, word.length());
+        }
+        this.max_len = longest;
+        this.term_len = Arrays.copyOf(len, states);
+        this.term_id = Arrays.copyOf(id, states);
+
+        // children per state, split between ASCII and the rest
+        int[] child_ascii = new int[states * ASCII];
+        Arrays.fill(child_ascii, -1);
+        int[] wide_count = new int[states];
+        for (Map.Entry<Long, Integer> e : edges.entrySet())
+        {
+            char c = (char) (e.getKey() & 0xFFFF);
+            int from = (int) (e.getKey() >>> 16);
+            if (c < ASCII)
+                child_ascii[from * ASCII + c] = e.getValue();
+            else
+                wide_count[from]++;
+        }
+        this.wide_keys = new char[states][];
+        this.wide_next = new int[states][];
+        for (int s = 0; s < states; s++)
+        {
+            wide_keys[s] = new char[wide_count[s]];
+            wide_next[s] = new int[wide_count[s]];
+            wide_count[s] = 0;
+        }
+        for (Map.Entry<Long, Integer> e : edges.entrySet())
+        {
+            char c = (char) (e.getKey() & 0xFFFF);
+            if (c >= ASCII)
+            {
+                int from = (int) (e.getKey() >>> 16);
+                wide_keys[from][wide_count[from]] = c;
+                wide_next[from][wide_count[from]++] = e.getValue();
+            }
+        }
+        for (int s = 0; s < states; s++)
+            sort(wide_keys[s], wide_next[s]);
+
+        // breadth first so a state's failure target is always resolved before it
+        this.fail = new int[states];
+        this.dict = new int[states];
+        this.ascii = new int[states * ASCII];
+        dict[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ASCII; c++)
+        {
+            int child = child_ascii[c];
+            ascii[c] = child == -1 ? 0 : child;
+            if (child != -1)
+                queue.add(child);
+        }
+        for (int i = 0; i < wide_next[0].length; i++)
+            queue.add(wide_next[0][i]);
+        for (int s : queue)
+            dict[s] = -1;
+        while (!queue.isEmpty())
+        {
+            int s = queue.poll();
+            int f = fail[s];
+            for (int c = 0; c < ASCII; c++)
+            {
+                int child = child_ascii[s * ASCII + c];
+                if (child == -1)
+                    ascii[s * ASCII + c] = ascii[f * ASCII + c];
+                else
+                {
+                    ascii[s * ASCII + c] = child;
+                    link(child, ascii[f * ASCII + c]);
+                    queue.add(child);
+                }
+            }
+            for (int i = 0; i < wide_keys[s].length; i++)
+            {
+                int child = wide_next[s][i];
+                link(child, step(f, wide_keys[s][i]));
+                queue.add(child);
+            }
+        }
+    }
+
+    private void link(int child, int failure)
+    {
+        fail[child] = failure;
+        dict[child] = term_len[failure] != 0 ? failure : dict[failure];
+    }
+
+    char fold(char c)
+    {
+        if (!fold)
+            return c;
+        if (c < ASCII)
+            return c >= 'A' && c <= 'Z' ? (char) (c | 0x20) : c;
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * @return the state after consuming {@code c} from {@code state}
+     */
+    int step(int state, char c)
+    {
+        c = fold(c);
+        if (c < ASCII)
+            return ascii[state * ASCII + c];
+        while (true)
+        {
+            int i = Arrays.binarySearch(wide_keys[state], c);
+            if (i >= 0)
+                return wide_next[state][i];
+            if (state == 0)
+                return 0;
+            state = fail[state];
+        }
+    }
+
+    /**
+     * @return length of the keyword that ends exactly at this state, 0 if none
+     */
+    int length(int state)
+    {
+        return term_len[state];
+    }
+
+    int id(int state)
+    {
+        return term_id[state];
+    }
+
+    /**
+     * Walks all matches ending at a position from longest to shortest:
+     * {@code for (int s = first(state); s != -1; s = next(s))}
+     */
+    int first(int state)
+    {
+        return term_len[state] != 0 ? state : dict[state];
+    }
+
+    int next(int state)
+    {
+        return dict[state];
+    }
+
+    private static void sort(char[] keys, int[] values)
+    {
+        for (int i = 1; i < keys.length; i++)
+            for (int j = i; j > 0 && keys[j - 1] > keys[j]; j--)
+            {
+                char k = keys[j];
+                keys[j] = keys[j - 1];
+                keys[j - 1] = k;
+                int v = values[j];
+                values[j] = values[j - 1];
+                values[j - 1] = v;
+            }
+    }
+}
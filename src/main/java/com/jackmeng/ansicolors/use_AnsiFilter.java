@@ -0,0 +1,274 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+
+/**
+ * Resumable escape sequence transformer behind {@link jm_AnsiFilterStream}
+ * and {@link jm_AnsiFilterWriter}.
+ * <p>
+ * The owner passes visible text straight through itself and only hands the
+ * units of escape sequences to {@link #feed(int)}, starting with
+ * {@link #begin()} on the {@code ESC}. Finished sequences are dropped
+ * (stripping) or passed on unchanged. When colors are transformed an SGR
+ * sequence is written again code by code with only its colors replaced, so
+ * codes the transform does not know about (underline colors, fonts ...) and
+ * repeated codes survive. Sequences with {@code :} sub-parameters or more
+ * parameters than are kept are left as they are, and one still open when the
+ * owner is closed is passed on as it is with {@link #end()}. Nothing is
+ * allocated after construction.
+ *
+ * @author Jack Meng
+ */
+abstract class use_AnsiFilter
+{
+    static final int ESC = 0x1B;
+
+    private static final int TEXT = 0, ESCAPE = 1, CSI = 2, OSC = 3, OSC_ESC = 4;
+
+    /**
+     * Longer sequences are passed on in pieces as they arrive
+     */
+    static final int RAW_MAX = 256;
+
+    private boolean strip;
+    private int colors = 1 << 24;
+    private int[] palette;
+
+    private int state = TEXT;
+    final char[] raw = new char[RAW_MAX];
+    private int raw_n;
+    private boolean split;
+    private final int[] p = new int[use_AnsiScan.MAX_PARAMS];
+    private int n, current;
+    private boolean has_current, private_csi, sub, overflow; // overflow: more parameters than p holds
+    private final StringBuilder seq = new StringBuilder(64);
+
+    /**
+     * Writes {@code raw[from, to)} on unchanged
+     */
+    abstract void emit_raw(char[] raw, int from, int to) throws IOException;
+
+    /**
+     * Writes a rewritten SGR sequence, only valid during the call
+     */
+    abstract void emit_sgr(StringBuilder seq) throws IOException;
+
+    final void strip()
+    {
+        strip = true;
+    }
+
+    final void downsample(int colors)
+    {
+        if (colors != 256 && colors != 16)
+            throw new IllegalArgumentException("colors must be 256 or 16, got " + colors);
+        this.strip = false;
+        this.colors = colors;
+    }
+
+    final void palette(int[] rgb)
+    {
+        if (rgb.length != 16)
+            throw new IllegalArgumentException("a palette has 16 colors, got " + rgb.length);
+        this.strip = false;
+        this.palette = rgb.clone();
+    }
+
+    final boolean idle()
+    {
+        return state == TEXT;
+    }
+
+    final void begin()
+    {
+        state = ESCAPE;
+        raw_n = 0;
+        split = false;
+        raw[raw_n++] = ESC;
+    }
+
+    final void feed(int c) throws IOException
+    {
+        if (c == ESC && (state == ESCAPE || state == CSI))
+        {
+            // broken sequence, a new one starts here the same as in jm_AnsiStrip
+            if (!strip)
+                emit_raw(raw, 0, raw_n);
+            begin();
+            return;
+        }
+        if (raw_n == RAW_MAX)
+        {
+            if (!strip)
+                emit_raw(raw, 0, raw_n);
+            raw_n = 0;
+            split = true;
+        }
+        raw[raw_n++] = (char) c;
+        switch (state)
+        {
+            case ESCAPE:
+                if (c == '[')
+                {
+                    state = CSI;
+                    n = 0;
+                    current = 0;
+                    has_current = false;
+                    private_csi = false;
+                    sub = false;
+                    overflow = false;
+                }
+                else if (c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_')
+                    state = OSC;
+                else if (c < 0x20 || c > 0x2F)
+                    finish(false);
+                break;
+            case CSI:
+                if (c >= '0' && c <= '9')
+                {
+                    current = Math.min(0xFFFF, current * 10 + c - '0');
+                    has_current = true;
+                }
+                else if (c == ';' || c == ':')
+                {
+                    if (n < p.length)
+                        p[n++] = current | (sub ? use_Sgr.SUB : 0);
+                    else
+                        overflow = true;
+                    current = 0;
+                    has_current = false;
+                    sub = c == ':';
+                }
+                else if (c >= 0x3C && c <= 0x3F || c >= 0x20 && c <= 0x2F)
+                    private_csi = true;
+                else if (c == 'm' && !private_csi)
+                {
+                    if (has_current || n > 0)
+                    {
+                        if (n < p.length)
+                            p[n++] = current | (sub ? use_Sgr.SUB : 0);
+                        else
+                            overflow = true;
+                    }
+                    finish(true);
+                }
+                else
+                    finish(false); // any other final byte, or a broken sequence
+                break;
+            case OSC:
+                if (c == '\007')
+                    finish(false);
+                else if (c == ESC)
+                    state = OSC_ESC;
+                break;
+            default: // OSC_ESC
+                if (c == '\\')
+                    finish(false);
+                else
+                    state = OSC;
+                break;
+        }
+    }
+
+    /**
+     * Passes on a sequence that never finished, called before the sink is
+     * closed so nothing written is lost
+     */
+    final void end() throws IOException
+    {
+        if (state == TEXT)
+            return;
+        state = TEXT;
+        if (!strip)
+            emit_raw(raw, 0, raw_n);
+    }
+
+    private void finish(boolean sgr) throws IOException
+    {
+        state = TEXT;
+        if (strip)
+            return;
+        if (!sgr || split || overflow || colors > 256 && palette == null || !rewrite())
+        {
+            // the start of a split sequence already went out unchanged, the rest has to follow
+            emit_raw(raw, 0, raw_n);
+            return;
+        }
+        emit_sgr(seq);
+    }
+
+    /**
+     * Writes the SGR parameters into {@link #seq} with the colors transformed
+     * and everything else copied
+     *
+     * @return false if the sequence has {@code :} groups and is better left
+     *         alone
+     */
+    private boolean rewrite()
+    {
+        for (int i = 0; i < n; i++)
+            if ((p[i] & use_Sgr.SUB) != 0)
+                return false;
+        seq.setLength(0);
+        seq.append("\033[");
+        for (int i = 0; i < n; i++)
+        {
+            if (i > 0)
+                seq.append(';');
+            int c = p[i], color = -1;
+            boolean bg = false;
+            if (c >= 30 && c <= 37 || c >= 90 && c <= 97)
+                color = use_Sgr.indexed(c < 90 ? c - 30 : c - 90 + 8);
+            else if (c >= 40 && c <= 47 || c >= 100 && c <= 107)
+            {
+                color = use_Sgr.indexed(c < 100 ? c - 40 : c - 100 + 8);
+                bg = true;
+            }
+            else if ((c == 38 || c == 48) && i + 2 < n && p[i + 1] == 5)
+            {
+                color = use_Sgr.indexed(p[i + 2]);
+                bg = c == 48;
+                i += 2;
+            }
+            else if ((c == 38 || c == 48) && i + 4 < n && p[i + 1] == 2)
+            {
+                color = use_Sgr.rgb(p[i + 2], p[i + 3], p[i + 4]);
+                bg = c == 48;
+                i += 4;
+            }
+            else if (c == 38 || c == 48 || c == 58)
+            {
+                // underline colors and anything malformed are copied with their arguments
+                int args = i + 1 < n && p[i + 1] == 5 ? 2 : i + 1 < n && p[i + 1] == 2 ? 4 : n;
+                seq.append(c);
+                for (int k = i + 1; k <= i + args && k < n; k++)
+                    seq.append(';').append(p[k]);
+                i = Math.min(n - 1, i + args);
+                continue;
+            }
+            if (color == -1)
+                seq.append(c);
+            else
+                use_Sgr.write_color(transform(color), bg, seq);
+        }
+        seq.append('m');
+        return true;
+    }
+
+    private int transform(int color)
+    {
+        if (palette != null)
+            color = remap(color);
+        return colors <= 256 ? use_Sgr.downsample(color, colors) : color;
+    }
+
+    private int remap(int color)
+    {
+        int v = color & use_Sgr.COLOR_VALUE_MASK;
+        if ((color & use_Sgr.COLOR_KIND_MASK) != use_Sgr.COLOR_INDEXED || v >= 16)
+            return color;
+        return use_Sgr.COLOR_RGB | palette[v] & use_Sgr.COLOR_VALUE_MASK;
+    }
+}
@@ -0,0 +1,175 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+/**
+ * Resumable scanner that splits already formatted text into visible
+ * characters, SGR updates and every other escape sequence.
+ * <p>
+ * Input can be fed in any sized pieces, an escape sequence cut in half between
+ * two calls to {@link #feed(CharSequence, int, int)} is picked up where it was
+ * left. Nothing is allocated after construction unless an escape sequence is
+ * longer than the internal raw buffer.
+ *
+ * @author Jack Meng
+ */
+abstract class use_AnsiScan
+{
+    static final char ESC = '\033';
+
+    private static final int TEXT = 0, ESCAPE = 1, CSI = 2, OSC = 3, OSC_ESC = 4;
+
+    static final int MAX_PARAMS = 32;
+
+    private int state = TEXT;
+    private final int[] params = new int[MAX_PARAMS];
+    private int n_params, current;
+    private boolean has_current, private_csi, sub;
+    private final StringBuilder raw = new StringBuilder(16);
+
+    /**
+     * A visible (or at least non escape) character
+     */
+    abstract void on_char(char c);
+
+    /**
+     * A complete {@code ESC[...m} sequence
+     *
+     * @param p
+     *          parameters, only valid during this call
+     * @param n
+     *          number of parameters used
+     */
+    abstract void on_sgr(int[] p, int n);
+
+    /**
+     * Any other complete escape sequence (cursor movement, OSC hyperlinks ...).
+     *
+     * @param seq
+     *          the raw sequence including the leading ESC, only valid during this
+     *          call
+     */
+    abstract void on_escape(CharSequence seq);
+
+    final void feed(char c)
+    {
+        switch (state)
+        {
+            case TEXT:
+                if (c == ESC)
+                {
+                    state = ESCAPE;
+                    raw.setLength(0);
+                    raw.append(c);
+                }
+                else
+                    on_char(c);
+                break;
+            case ESCAPE:
+                raw.append(c);
+                if (c == '[')
+                {
+                    state = CSI;
+                    n_params = 0;
+                    current = 0;
+                    has_current = false;
+                    private_csi = false;
+                    sub = false;
+                }
+                else if (c == ']')
+                    state = OSC;
+                else if (c < 0x20 || c > 0x2F) // 0x20-0x2F are intermediates (ESC ( B), wait for the final byte
+                {
+                    state = TEXT;
+                    on_escape(raw);
+                }
+                break;
+            case CSI:
+                raw.append(c);
+                if (c >= '0' && c <= '9')
+                {
+                    current = current * 10 + (c - '0');
+                    if (current > 0xFFFF)
+                        current = 0xFFFF;
+                    has_current = true;
+                }
+                else if (c == ';' || c == ':')
+                {
+                    push_param();
+                    has_current = false;
+                    sub = c == ':';
+                }
+                else if (c >= 0x3C && c <= 0x3F || c >= 0x20 && c <= 0x2F)
+                    private_csi = true;
+                else if (c >= 0x40 && c <= 0x7E)
+                {
+                    state = TEXT;
+                    if (c == 'm' && !private_csi)
+                    {
+                        if (has_current || n_params > 0)
+                            push_param();
+                        on_sgr(params, n_params);
+                    }
+                    else
+                        on_escape(raw);
+                }
+                else
+                {
+                    // not a valid CSI byte, give up on the sequence and treat it as text
+                    state = TEXT;
+                    on_escape(raw);
+                }
+                break;
+            case OSC:
+                raw.append(c);
+                if (c == '\007')
+                {
+                    state = TEXT;
+                    on_escape(raw);
+                }
+                else if (c == ESC)
+                    state = OSC_ESC;
+                break;
+            default: // OSC_ESC
+                raw.append(c);
+                if (c == '\\')
+                {
+                    state = TEXT;
+                    on_escape(raw);
+                }
+                else
+                    state = OSC;
+                break;
+        }
+    }
+
+    final void feed(CharSequence s, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+            feed(s.charAt(i));
+    }
+
+    /**
+     * @return true if the scanner is not in the middle of an escape sequence
+     */
+    final boolean idle()
+    {
+        return state == TEXT;
+    }
+
+    /**
+     * Drops whatever partial escape sequence is pending.
+     */
+    final void reset_scan()
+    {
+        state = TEXT;
+        raw.setLength(0);
+    }
+
+    private void push_param()
+    {
+        if (n_params < MAX_PARAMS)
+            params[n_params++] = (has_current ? current : 0) | (sub ? use_Sgr.SUB : 0);
+        current = 0;
+    }
+}
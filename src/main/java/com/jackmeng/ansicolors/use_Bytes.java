@@ -0,0 +1,267 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 byte buffer used by everything that renders straight to
+ * bytes instead of going through a {@link String}.
+ * <p>
+ * Unlike {@link java.io.ByteArrayOutputStream} nothing here is synchronized and
+ * text is encoded in place, so a buffer that is cleared and reused does not
+ * allocate once it has grown to its working size.
+ *
+ * @author Jack Meng
+ */
+final class use_Bytes
+{
+    byte[] a;
+    int n;
+
+    use_Bytes(int capacity)
+    {
+        a = new byte[Math.max(16, capacity)];
+    }
+
+    int length()
+    {
+        return n;
+    }
+
+    use_Bytes clear()
+    {
+        n = 0;
+        return this;
+    }
+
+    /**
+     * Makes sure at least {@code more} bytes can be written straight into
+     * {@link #a} starting at {@link #n}
+     */
+    void room(int more)
+    {
+        if (n + more > a.length)
+            a = Arrays.copyOf(a, Math.max(n + more, a.length << 1));
+    }
+
+    use_Bytes put(byte b)
+    {
+        if (n == a.length)
+            room(1);
+        a[n++] = b;
+        return this;
+    }
+
+    use_Bytes put(byte[] b)
+    {
+        return put(b, 0, b.length);
+    }
+
+    use_Bytes put(byte[] b, int off, int len)
+    {
+        room(len);
+        System.arraycopy(b, off, a, n, len);
+        n += len;
+        return this;
+    }
+
+    /**
+     * Appends a character known to be ASCII
+     */
+    use_Bytes ascii(char c)
+    {
+        if (n == a.length)
+            room(1);
+        a[n++] = (byte) c;
+        return this;
+    }
+
+    use_Bytes utf8(CharSequence s)
+    {
+        return s == null ? utf8("null") : utf8(s, 0, s.length());
+    }
+
+    /**
+     * UTF-8 encodes {@code s[from, to)}, lone surrogates become {@code ?}
+     */
+    use_Bytes utf8(CharSequence s, int from, int to)
+    {
+        room(to - from);
+        for (int i = from; i < to; i++)
+        {
+            char c = s.charAt(i);
+            if (c < 0x80)
+            {
+                if (n == a.length)
+                    room(1);
+                a[n++] = (byte) c;
+            }
+            else
+                i = wide(s, i, to, c);
+        }
+        return this;
+    }
+
+    use_Bytes utf8(char c)
+    {
+        if (c < 0x80)
+            return ascii(c);
+        wide(null, 0, 0, c);
+        return this;
+    }
+
+    /**
+     * @return the index of the last char consumed
+     */
+    private int wide(CharSequence s, int i, int to, char c)
+    {
+        room(4);
+        if (c < 0x800)
+        {
+            a[n++] = (byte) (0xC0 | c >> 6);
+            a[n++] = (byte) (0x80 | c & 0x3F);
+        }
+        else if (Character.isHighSurrogate(c) && s != null && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1)))
+        {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            a[n++] = (byte) (0xF0 | cp >> 18);
+            a[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+            a[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+            a[n++] = (byte) (0x80 | cp & 0x3F);
+        }
+        else if (Character.isSurrogate(c))
+            a[n++] = '?';
+        else
+        {
+            a[n++] = (byte) (0xE0 | c >> 12);
+            a[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+            a[n++] = (byte) (0x80 | c & 0x3F);
+        }
+        return i;
+    }
+
+    use_Bytes decimal(long v)
+    {
+        if (v >= 0 && v < 256)
+        {
+            int len = use_Tables.DECIMAL_LENGTHS[(int) v];
+            room(len);
+            System.arraycopy(use_Tables.DECIMAL_BYTES, (int) v << 2, a, n, len);
+            n += len;
+            return this;
+        }
+        if (v < 0)
+        {
+            if (v == Long.MIN_VALUE)
+                return utf8("-9223372036854775808");
+            ascii('-');
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10)
+            digits++;
+        room(digits);
+        for (int i = n + digits - 1; i >= n; i--, v /= 10)
+            a[i] = (byte) ('0' + v % 10);
+        n += digits;
+        return this;
+    }
+
+    private static final byte[] TRUECOLOR_FG = { '\033', '[', '3', '8', ';', '2', ';' };
+    private static final byte[] TRUECOLOR_BG = { '\033', '[', '4', '8', ';', '2', ';' };
+
+    /**
+     * A complete {@code ESC[38;2;r;g;bm} (or {@code 48}) sequence
+     *
+     * @param rgb
+     *          {@code 0xRRGGBB}
+     */
+    use_Bytes truecolor(int rgb, boolean background)
+    {
+        room(20);
+        System.arraycopy(background ? TRUECOLOR_BG : TRUECOLOR_FG, 0, a, n, 7);
+        n += 7;
+        param(rgb >>> 16 & 0xFF, 1);
+        param(rgb >>> 8 & 0xFF, 1);
+        param(rgb & 0xFF, 0);
+        a[n++] = 'm';
+        return this;
+    }
+
+    /**
+     * The SGR parameters of a packed {@link use_Sgr} color, without the leading
+     * {@code ESC[} or the final {@code m}
+     */
+    use_Bytes color(int color, boolean background)
+    {
+        int kind = color & use_Sgr.COLOR_KIND_MASK, v = color & use_Sgr.COLOR_VALUE_MASK;
+        room(16);
+        if (kind == use_Sgr.COLOR_DEFAULT)
+            return decimal(background ? 49 : 39);
+        if (kind == use_Sgr.COLOR_INDEXED && v < 8)
+            return decimal((background ? 40 : 30) + v);
+        if (kind == use_Sgr.COLOR_INDEXED && v < 16)
+            return decimal((background ? 100 : 90) + v - 8);
+        a[n++] = (byte) (background ? '4' : '3');
+        a[n++] = '8';
+        a[n++] = ';';
+        if (kind == use_Sgr.COLOR_INDEXED)
+        {
+            a[n++] = '5';
+            a[n++] = ';';
+            param(v, 0);
+            return this;
+        }
+        a[n++] = '2';
+        a[n++] = ';';
+        param(v >>> 16 & 0xFF, 1);
+        param(v >>> 8 & 0xFF, 1);
+        param(v & 0xFF, 0);
+        return this;
+    }
+
+    /**
+     * Caller made room
+     */
+    private void param(int v, int separator)
+    {
+        int len = use_Tables.DECIMAL_LENGTHS[v] + separator;
+        System.arraycopy(use_Tables.DECIMAL_BYTES, v << 2, a, n, len);
+        n += len;
+    }
+
+    void write_to(OutputStream out)
+    {
+        Object jfr = jm_AnsiMetrics.write_begin();
+        long start = jm_AnsiMetrics.on ? System.nanoTime() : 0L;
+        try
+        {
+            out.write(a, 0, n);
+            jm_AnsiMetrics.wrote(jfr, start, n, out);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void write_to(ByteBuffer out)
+    {
+        out.put(a, 0, n);
+    }
+
+    byte[] to_array()
+    {
+        return Arrays.copyOf(a, n);
+    }
+
+    @Override public String toString()
+    {
+        return new String(a, 0, n, StandardCharsets.UTF_8);
+    }
+}
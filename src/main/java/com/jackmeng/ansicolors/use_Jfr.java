@@ -0,0 +1,100 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder events. Only touched through {@link jm_AnsiMetrics} after it
+ * checked that {@code jdk.jfr} is there, so runtimes without it never load
+ * this class.
+ * <p>
+ * Both events are enabled by the default JFR settings, writes only when they
+ * take longer than the threshold. Nothing is allocated while no recording
+ * has them enabled.
+ *
+ * @author Jack Meng
+ */
+final class use_Jfr
+{
+    private use_Jfr()
+    {
+    }
+
+    @Name("com.jackmeng.ansicolors.SlowWrite")
+    @Label("Slow Styled Write")
+    @Description("Styled output that took long to hand to its sink")
+    @Category({ "ansicolor" })
+    @Threshold("10 ms")
+    static final class _write extends Event
+    {
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Sink")
+        String sink;
+    }
+
+    @Name("com.jackmeng.ansicolors.CacheMiss")
+    @Label("Style Cache Miss")
+    @Description("A lookup that had to build its result")
+    @Category({ "ansicolor" })
+    @StackTrace(false)
+    static final class _miss extends Event
+    {
+        @Label("Cache")
+        String cache;
+
+        @Label("Key")
+        String key;
+    }
+
+    private static final EventType WRITE = EventType.getEventType(_write.class);
+    private static final EventType MISS = EventType.getEventType(_miss.class);
+
+    /**
+     * @return null if no recording wants the event
+     */
+    static _write begin_write()
+    {
+        if (!WRITE.isEnabled())
+            return null;
+        _write e = new _write();
+        e.begin();
+        return e;
+    }
+
+    static void end_write(Object e, long bytes, Object sink)
+    {
+        _write w = (_write) e;
+        w.end();
+        if (w.shouldCommit())
+        {
+            w.bytes = bytes;
+            w.sink = sink.getClass().getName();
+            w.commit();
+        }
+    }
+
+    static void miss(String cache, Object key)
+    {
+        if (!MISS.isEnabled())
+            return;
+        _miss e = new _miss();
+        if (e.shouldCommit())
+        {
+            e.cache = cache;
+            e.key = String.valueOf(key);
+            e.commit();
+        }
+    }
+}
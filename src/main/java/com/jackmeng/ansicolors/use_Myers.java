@@ -0,0 +1,150 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+/**
+ * Myers' O(ND) difference algorithm with the linear space refinement: the
+ * middle snake of each range is found with a forward and a backward search
+ * meeting halfway and both halves are solved on their own.
+ * <p>
+ * Works on {@code int} sequences (line ids, chars) and only marks which
+ * elements were removed from {@code a} and which were inserted into
+ * {@code b}, so memory stays at {@code O(N + M)} no matter how different the
+ * inputs are.
+ *
+ * @author Jack Meng
+ */
+final class use_Myers
+{
+    private final int[] a, b;
+    private final int[] fwd, bwd;
+    private final int offset;
+
+    /**
+     * {@code removed[i]} is set for every {@code a[i]} not in the longest
+     * common subsequence
+     */
+    final boolean[] removed;
+
+    /**
+     * {@code inserted[j]} is set for every {@code b[j]} not in the longest
+     * common subsequence
+     */
+    final boolean[] inserted;
+
+    /**
+     * Runs the diff right away
+     */
+    use_Myers(int[] a, int[] b)
+    {
+        this.a = a;
+        this.b = b;
+        this.removed = new boolean[a.length];
+        this.inserted = new boolean[b.length];
+        int max = (a.length + b.length + 1) / 2 + 1;
+        this.offset = max + 1;
+        this.fwd = new int[2 * offset + 1];
+        this.bwd = new int[2 * offset + 1];
+        compare(0, a.length, 0, b.length);
+    }
+
+    private void compare(int x_lo, int x_hi, int y_lo, int y_hi)
+    {
+        while (true)
+        {
+            while (x_lo < x_hi && y_lo < y_hi && a[x_lo] == b[y_lo])
+            {
+                x_lo++;
+                y_lo++;
+            }
+            while (x_lo < x_hi && y_lo < y_hi && a[x_hi - 1] == b[y_hi - 1])
+            {
+                x_hi--;
+                y_hi--;
+            }
+            if (x_lo == x_hi)
+            {
+                for (int j = y_lo; j < y_hi; j++)
+                    inserted[j] = true;
+                return;
+            }
+            if (y_lo == y_hi)
+            {
+                for (int i = x_lo; i < x_hi; i++)
+                    removed[i] = true;
+                return;
+            }
+            long mid = middle(x_lo, x_hi, y_lo, y_hi);
+            int x = (int) (mid >>> 32), y = (int) mid;
+            // recurse into the smaller half, loop on the other to keep the stack shallow
+            if (x - x_lo + y - y_lo < x_hi - x + y_hi - y)
+            {
+                compare(x_lo, x, y_lo, y);
+                x_lo = x;
+                y_lo = y;
+            }
+            else
+            {
+                compare(x, x_hi, y, y_hi);
+                x_hi = x;
+                y_hi = y;
+            }
+        }
+    }
+
+    /**
+     * @return A point {@code x << 32 | y} on an optimal path through the range,
+     *         never one of its corners
+     */
+    private long middle(int x_lo, int x_hi, int y_lo, int y_hi)
+    {
+        int n = x_hi - x_lo, m = y_hi - y_lo, delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int o = offset;
+        fwd[o + 1] = 0;
+        bwd[o + 1] = 0;
+        for (int d = 0, max = (n + m + 1) / 2; d <= max; d++)
+        {
+            for (int k = -d; k <= d; k += 2)
+            {
+                int x = k == -d || k != d && fwd[o + k - 1] < fwd[o + k + 1] ? fwd[o + k + 1] : fwd[o + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x_lo + x] == b[y_lo + y])
+                {
+                    x++;
+                    y++;
+                }
+                fwd[o + k] = x;
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1 && x + bwd[o + c] >= n)
+                    return (long) (x_lo + x) << 32 | (y_lo + y) & 0xFFFFFFFFL;
+            }
+            for (int k = -d; k <= d; k += 2)
+            {
+                int x = k == -d || k != d && bwd[o + k - 1] < bwd[o + k + 1] ? bwd[o + k + 1] : bwd[o + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x_hi - 1 - x] == b[y_hi - 1 - y])
+                {
+                    x++;
+                    y++;
+                }
+                bwd[o + k] = x;
+                int c = delta - k;
+                if (!odd && c >= -d && c <= d && x + fwd[o + c] >= n)
+                    return (long) (x_hi - x) << 32 | (y_hi - y) & 0xFFFFFFFFL;
+            }
+        }
+        throw new IllegalStateException("No middle snake"); // cannot happen, d reaches (n + m) / 2
+    }
+
+    /**
+     * @return The elements of {@code s} as ints
+     */
+    static int[] chars(CharSequence s)
+    {
+        int[] r = new int[s.length()];
+        for (int i = 0; i < r.length; i++)
+            r[i] = s.charAt(i);
+        return r;
+    }
+}
@@ -0,0 +1,89 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Shared plumbing for the renderers that split their work into independent
+ * chunks and put the results back together in order.
+ *
+ * @author Jack Meng
+ */
+final class use_Parallel
+{
+    private use_Parallel()
+    {
+    }
+
+    /**
+     * Runs {@code task} for every index in {@code [0, n)} on {@code pool} and
+     * returns once all of them are done. A single index runs on the caller.
+     */
+    static void each(ForkJoinPool pool, int n, IntConsumer task)
+    {
+        if (n == 1)
+            task.accept(0);
+        else if (n > 1)
+            pool.invoke(new _each(0, n, task));
+    }
+
+    /**
+     * Writes every buffer fully and in order, with gathering writes if the
+     * channel supports them
+     *
+     * @return number of bytes written
+     */
+    static long write_all(WritableByteChannel out, ByteBuffer... bufs) throws IOException
+    {
+        Object jfr = jm_AnsiMetrics.write_begin();
+        long start = jm_AnsiMetrics.on ? System.nanoTime() : 0L;
+        long total = 0;
+        for (ByteBuffer b : bufs)
+            total += b.remaining();
+        if (out instanceof GatheringByteChannel)
+            for (long left = total; left > 0;)
+                left -= ((GatheringByteChannel) out).write(bufs);
+        else
+            for (ByteBuffer b : bufs)
+                while (b.hasRemaining())
+                    out.write(b);
+        jm_AnsiMetrics.wrote(jfr, start, total, out);
+        return total;
+    }
+
+    /**
+     * Split in halves down to single indices
+     */
+    private static final class _each extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final transient IntConsumer task;
+
+        _each(int from, int to, IntConsumer task)
+        {
+            this.from = from;
+            this.to = to;
+            this.task = task;
+        }
+
+        @Override protected void compute()
+        {
+            if (to - from == 1)
+                task.accept(from);
+            else
+            {
+                int mid = (from + to) >>> 1;
+                invokeAll(new _each(from, mid, task), new _each(mid, to, task));
+            }
+        }
+    }
+}
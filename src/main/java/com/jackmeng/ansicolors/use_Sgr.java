@@ -0,0 +1,467 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+/**
+ * Packed SGR (Select Graphic Rendition) state used internally for anything
+ * that needs to know "what is currently being drawn with" instead of just
+ * appending codes.
+ * <p>
+ * A style is a single {@code long}:
+ * <ul>
+ * <li>bits 0-11 - attribute flags (bold, dim, italic ...)</li>
+ * <li>bits 12-37 - foreground color</li>
+ * <li>bits 38-63 - background color</li>
+ * </ul>
+ * A color is 26 bits where the upper two bits are the kind
+ * ({@link #COLOR_DEFAULT}, {@link #COLOR_INDEXED} or {@link #COLOR_RGB}) and the
+ * lower 24 bits are either the palette index or {@code 0xRRGGBB}.
+ * <p>
+ * {@code 0L} is always the terminal's default (RESET) style.
+ *
+ * @author Jack Meng
+ */
+final class use_Sgr
+{
+    private use_Sgr()
+    {
+    }
+
+    static final int BOLD = 1;
+    static final int DIM = 1 << 1;
+    static final int ITALIC = 1 << 2;
+    static final int UNDERLINE = 1 << 3;
+    static final int BLINK = 1 << 4;
+    static final int BLINK_FAST = 1 << 5;
+    static final int INVERSE = 1 << 6;
+    static final int HIDE = 1 << 7;
+    static final int STRIKE = 1 << 8;
+    static final int FRAMED = 1 << 9;
+    static final int ENCIRCLED = 1 << 10;
+    static final int OVERLINED = 1 << 11;
+
+    static final int ATTR_MASK = 0xFFF;
+
+    static final int COLOR_DEFAULT = 0;
+    static final int COLOR_INDEXED = 1 << 24;
+    static final int COLOR_RGB = 2 << 24;
+
+    static final int COLOR_KIND_MASK = 3 << 24;
+    static final int COLOR_VALUE_MASK = 0xFFFFFF;
+    static final int COLOR_MASK = 0x3FFFFFF;
+
+    /**
+     * Set by the scanners on a parameter that followed a {@code :} instead of a
+     * {@code ;}, so {@code 4:3} (curly underline) stays one code with an
+     * argument instead of becoming underline and italic
+     */
+    static final int SUB = 1 << 30;
+
+    static final int FG_SHIFT = 12;
+    static final int BG_SHIFT = 38;
+
+    /**
+     * The code that turns each attribute bit on, in bit order
+     */
+    private static final int[] ATTR_ON = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 51, 52, 53 };
+
+    /**
+     * The code that turns each attribute bit off, in bit order. Some of these are
+     * shared (22 clears both bold and dim).
+     */
+    private static final int[] ATTR_OFF = { 22, 22, 23, 24, 25, 25, 27, 28, 29, 54, 54, 55 };
+
+    static int attrs(long style)
+    {
+        return (int) style & ATTR_MASK;
+    }
+
+    static int fg(long style)
+    {
+        return (int) (style >>> FG_SHIFT) & COLOR_MASK;
+    }
+
+    static int bg(long style)
+    {
+        return (int) (style >>> BG_SHIFT) & COLOR_MASK;
+    }
+
+    static long with_attrs(long style, int attrs)
+    {
+        return (style & ~(long) ATTR_MASK) | (attrs & ATTR_MASK);
+    }
+
+    static long with_fg(long style, int color)
+    {
+        return (style & ~((long) COLOR_MASK << FG_SHIFT)) | ((long) (color & COLOR_MASK) << FG_SHIFT);
+    }
+
+    static long with_bg(long style, int color)
+    {
+        return (style & ~((long) COLOR_MASK << BG_SHIFT)) | ((long) (color & COLOR_MASK) << BG_SHIFT);
+    }
+
+    /**
+     * {@code inner} drawn inside {@code outer}: attributes add up, colors of
+     * {@code inner} win unless they are the default
+     */
+    static long merge(long outer, long inner)
+    {
+        long merged = outer | attrs(inner);
+        if (fg(inner) != COLOR_DEFAULT)
+            merged = with_fg(merged, fg(inner));
+        if (bg(inner) != COLOR_DEFAULT)
+            merged = with_bg(merged, bg(inner));
+        return merged;
+    }
+
+    static int indexed(int index)
+    {
+        return COLOR_INDEXED | (index & 0xFF);
+    }
+
+    static int rgb(int r, int g, int b)
+    {
+        return COLOR_RGB | (use_Help.clamp(0, 255, r) << 16) | (use_Help.clamp(0, 255, g) << 8) | use_Help.clamp(0, 255, b);
+    }
+
+    /**
+     * @return {@code 0xRRGGBB} of a 256 color palette index (xterm defaults)
+     */
+    static int palette_rgb(int index)
+    {
+        return use_Tables.PALETTE_RGB[index & 0xFF];
+    }
+
+    /**
+     * @return {@code 0xRRGGBB} of an indexed or RGB color, -1 for
+     *         {@link #COLOR_DEFAULT}
+     */
+    static int to_rgb(int color)
+    {
+        int kind = color & COLOR_KIND_MASK;
+        if (kind == COLOR_DEFAULT)
+            return -1;
+        return kind == COLOR_INDEXED ? palette_rgb(color) : color & COLOR_VALUE_MASK;
+    }
+
+    /**
+     * Nearest color a terminal with only {@code colors} (16 or 256) colors can
+     * show, default and already fitting colors are returned as is
+     */
+    static int downsample(int color, int colors)
+    {
+        int kind = color & COLOR_KIND_MASK, v = color & COLOR_VALUE_MASK;
+        if (kind == COLOR_DEFAULT || colors > 256 || kind == COLOR_INDEXED && v < colors)
+            return color;
+        int rgb = to_rgb(color), r = rgb >>> 16, g = (rgb >>> 8) & 0xFF, b = rgb & 0xFF;
+        if (colors > 16)
+        {
+            int cube = 16 + 36 * cube_level(r) + 6 * cube_level(g) + cube_level(b);
+            int avg = (r + g + b) / 3, gray = avg < 8 ? 0 : Math.min(23, (avg - 3) / 10);
+            return indexed(distance(rgb, palette_rgb(232 + gray)) < distance(rgb, palette_rgb(cube)) ? 232 + gray : cube);
+        }
+        int best = 0;
+        for (int i = 1; i < 16; i++)
+            if (distance(rgb, use_Tables.PALETTE_RGB[i]) < distance(rgb, use_Tables.PALETTE_RGB[best]))
+                best = i;
+        return indexed(best);
+    }
+
+    /**
+     * {@link #downsample(int, int)} for both colors of a style
+     */
+    static long downsample(long style, int colors)
+    {
+        return with_bg(with_fg(style, downsample(fg(style), colors)), downsample(bg(style), colors));
+    }
+
+    private static int cube_level(int v)
+    {
+        return v < 48 ? 0 : v < 115 ? 1 : (v - 35) / 40;
+    }
+
+    private static int distance(int a, int b)
+    {
+        int r = (a >>> 16) - (b >>> 16), g = ((a >>> 8) & 0xFF) - ((b >>> 8) & 0xFF), bl = (a & 0xFF) - (b & 0xFF);
+        return r * r + g * g + bl * bl;
+    }
+
+    /**
+     * Applies a list of SGR parameters (the numbers between {@code ESC[} and
+     * {@code m}) on top of a style.
+     *
+     * @param style
+     *          The style to start from
+     * @param p
+     *          Parameter buffer
+     * @param n
+     *          How many parameters in {@code p} are used. {@code 0} is treated as
+     *          a single {@code 0} (RESET) like terminals do.
+     * @return The resulting style
+     */
+    static long apply(long style, int[] p, int n)
+    {
+        if (n == 0)
+            return 0L;
+        for (int i = 0; i < n; i++)
+        {
+            int c = p[i];
+            int g = i + 1;
+            while (g < n && (p[g] & SUB) != 0)
+                g++;
+            if (g > i + 1)
+            {
+                style = group(style, c, p, i + 1, g);
+                i = g - 1;
+            }
+            else if (c == 0)
+                style = 0L;
+            else if (c >= 1 && c <= 9)
+                style |= ATTR_ON_BIT[c];
+            else if (c == 21 || c == 22)
+                style &= ~(long) (BOLD | DIM);
+            else if (c == 23)
+                style &= ~(long) ITALIC;
+            else if (c == 24)
+                style &= ~(long) UNDERLINE;
+            else if (c == 25)
+                style &= ~(long) (BLINK | BLINK_FAST);
+            else if (c == 27)
+                style &= ~(long) INVERSE;
+            else if (c == 28)
+                style &= ~(long) HIDE;
+            else if (c == 29)
+                style &= ~(long) STRIKE;
+            else if (c >= 30 && c <= 37)
+                style = with_fg(style, indexed(c - 30));
+            else if (c == 39)
+                style = with_fg(style, COLOR_DEFAULT);
+            else if (c >= 40 && c <= 47)
+                style = with_bg(style, indexed(c - 40));
+            else if (c == 49)
+                style = with_bg(style, COLOR_DEFAULT);
+            else if (c >= 90 && c <= 97)
+                style = with_fg(style, indexed(c - 90 + 8));
+            else if (c >= 100 && c <= 107)
+                style = with_bg(style, indexed(c - 100 + 8));
+            else if (c == 51)
+                style |= FRAMED;
+            else if (c == 52)
+                style |= ENCIRCLED;
+            else if (c == 53)
+                style |= OVERLINED;
+            else if (c == 54)
+                style &= ~(long) (FRAMED | ENCIRCLED);
+            else if (c == 55)
+                style &= ~(long) OVERLINED;
+            else if ((c == 38 || c == 48 || c == 58) && i + 1 < n)
+            {
+                int color = -1;
+                if (p[i + 1] == 5 && i + 2 < n)
+                {
+                    color = indexed(p[i + 2]);
+                    i += 2;
+                }
+                else if (p[i + 1] == 2 && i + 4 < n)
+                {
+                    color = rgb(p[i + 2], p[i + 3], p[i + 4]);
+                    i += 4;
+                }
+                else
+                    i = n; // malformed extended color, the rest cannot be trusted
+                if (color != -1 && c != 58) // underline colors are not tracked
+                    style = c == 38 ? with_fg(style, color) : with_bg(style, color);
+            }
+            // fonts (10-19), fraktur (20) and anything unknown are not tracked
+        }
+        return style;
+    }
+
+    /**
+     * A code with {@code :} arguments in {@code p[from, to)}:
+     * {@code 38:5:n}, {@code 38:2:r:g:b}, {@code 38:2:id:r:g:b} (and 48) or
+     * an underline style {@code 4:n}, anything else is skipped as a whole
+     */
+    private static long group(long style, int c, int[] p, int from, int to)
+    {
+        int kind = p[from] & ~SUB, args = to - from;
+        if (c == 4)
+            return kind == 0 ? style & ~(long) UNDERLINE : style | UNDERLINE;
+        if (c != 38 && c != 48)
+            return style;
+        int color = -1;
+        if (kind == 5 && args >= 2)
+            color = indexed(p[from + 1] & ~SUB);
+        else if (kind == 2 && args >= 4)
+        {
+            int at = args >= 5 ? from + 2 : from + 1; // skip the color space id if there is one
+            color = rgb(p[at] & ~SUB, p[at + 1] & ~SUB, p[at + 2] & ~SUB);
+        }
+        if (color == -1)
+            return style;
+        return c == 38 ? with_fg(style, color) : with_bg(style, color);
+    }
+
+    private static final int[] ATTR_ON_BIT = { 0, BOLD, DIM, ITALIC, UNDERLINE, BLINK, BLINK_FAST, INVERSE, HIDE, STRIKE };
+
+    /**
+     * Writes the shortest (by parameter count) SGR sequence that moves a terminal
+     * from {@code from} to {@code to}. Nothing is written if they are equal.
+     */
+    static void diff(long from, long to, StringBuilder out)
+    {
+        if (from == to)
+            return;
+        if (to == 0L)
+        {
+            out.append("\033[0m");
+            return;
+        }
+        int fa = attrs(from), ta = attrs(to);
+        int removed = fa & ~ta;
+        int off_codes = 0, readd = 0;
+        for (int i = 0, seen = 0; i < ATTR_OFF.length; i++)
+            if ((removed & (1 << i)) != 0)
+            {
+                int shared = shared_mask(i);
+                if ((seen & shared) == 0)
+                {
+                    seen |= shared;
+                    off_codes++;
+                    readd |= shared & ta & fa; // bits cleared as a side effect of a shared code
+                }
+            }
+        int added = (ta & ~fa) | readd;
+        int ffg = fg(from), tfg = fg(to), fbg = bg(from), tbg = bg(to);
+        int incremental = off_codes + Integer.bitCount(added) + (ffg != tfg ? 1 : 0) + (fbg != tbg ? 1 : 0);
+        int from_reset = 1 + Integer.bitCount(ta) + (tfg != COLOR_DEFAULT ? 1 : 0) + (tbg != COLOR_DEFAULT ? 1 : 0);
+        out.append("\033[");
+        if (from_reset < incremental)
+        {
+            out.append('0');
+            write_attrs(ta, out, true);
+            if (tfg != COLOR_DEFAULT)
+                write_color(tfg, false, out.append(';'));
+            if (tbg != COLOR_DEFAULT)
+                write_color(tbg, true, out.append(';'));
+        }
+        else
+        {
+            boolean first = true;
+            for (int i = 0, seen = 0; i < ATTR_OFF.length; i++)
+                if ((removed & (1 << i)) != 0 && (seen & shared_mask(i)) == 0)
+                {
+                    seen |= shared_mask(i);
+                    if (!first)
+                        out.append(';');
+                    out.append(ATTR_OFF[i]);
+                    first = false;
+                }
+            if (write_attrs(added, out, !first))
+                first = false;
+            if (ffg != tfg)
+            {
+                if (!first)
+                    out.append(';');
+                write_color(tfg, false, out);
+                first = false;
+            }
+            if (fbg != tbg)
+            {
+                if (!first)
+                    out.append(';');
+                write_color(tbg, true, out);
+            }
+        }
+        out.append('m');
+    }
+
+    /**
+     * The full SGR sequence for a style starting from the default style.
+     */
+    static String sgr(long style)
+    {
+        StringBuilder sb = new StringBuilder(24);
+        if (style == 0L)
+            sb.append("\033[0m");
+        else
+            diff(0L, style, sb);
+        return sb.toString();
+    }
+
+    /**
+     * @return true if anything was written
+     */
+    private static boolean write_attrs(int attrs, StringBuilder out, boolean lead)
+    {
+        boolean wrote = false;
+        for (int i = 0; i < ATTR_ON.length; i++)
+            if ((attrs & (1 << i)) != 0)
+            {
+                if (lead || wrote)
+                    out.append(';');
+                out.append(ATTR_ON[i]);
+                wrote = true;
+            }
+        return wrote;
+    }
+
+    private static int shared_mask(int bit)
+    {
+        switch (bit)
+        {
+            case 0:
+            case 1:
+                return BOLD | DIM;
+            case 4:
+            case 5:
+                return BLINK | BLINK_FAST;
+            case 9:
+            case 10:
+                return FRAMED | ENCIRCLED;
+            default:
+                return 1 << bit;
+        }
+    }
+
+    static void write_color(int color, boolean background, StringBuilder out)
+    {
+        int kind = color & COLOR_KIND_MASK, v = color & COLOR_VALUE_MASK;
+        if (kind == COLOR_DEFAULT)
+            out.append(background ? 49 : 39);
+        else if (kind == COLOR_INDEXED && v < 8)
+            out.append((background ? 40 : 30) + v);
+        else if (kind == COLOR_INDEXED && v < 16)
+            out.append((background ? 100 : 90) + v - 8);
+        else if (kind == COLOR_INDEXED)
+            param(v, out.append(background ? "48;5;" : "38;5;"), false);
+        else
+            truecolor(v, background, out);
+    }
+
+    /**
+     * Appends {@code 38;2;r;g;b} (or {@code 48;...}) with three bulk copies
+     *
+     * @param rgb
+     *          {@code 0xRRGGBB}
+     */
+    static void truecolor(int rgb, boolean background, StringBuilder out)
+    {
+        out.append(background ? "48;2;" : "38;2;");
+        param(rgb >>> 16 & 0xFF, out, true);
+        param(rgb >>> 8 & 0xFF, out, true);
+        param(rgb & 0xFF, out, false);
+    }
+
+    /**
+     * @param v
+     *          0-255
+     * @param separator
+     *          Whether to follow it with a {@code ;}
+     */
+    static void param(int v, StringBuilder out, boolean separator)
+    {
+        out.append(use_Tables.DECIMAL_CHARS, v << 2, use_Tables.DECIMAL_LENGTHS[v] + (separator ? 1 : 0));
+    }
+}
@@ -0,0 +1,79 @@
+// Software created by Jack Meng (AKA exoad). Licensed by the included "LICENSE" file. If this file is not found, the project is fully copyrighted.
+
+package com.jackmeng.ansicolors;
+
+/**
+ * Lookup tables that only depend on constants.
+ * <p>
+ * Kept apart from anything that reads the environment, system properties or
+ * mutable switches so it can be initialized while building a native image (see
+ * {@code META-INF/native-image}) and archived as is by CDS. Nothing may be
+ * added here that would come out different on the machine the program runs
+ * on.
+ *
+ * @author Jack Meng
+ */
+final class use_Tables
+{
+    private use_Tables()
+    {
+    }
+
+    /**
+     * xterm's default 256 color palette as {@code 0xRRGGBB}
+     */
+    static final int[] PALETTE_RGB = new int[256];
+
+    /**
+     * Two lowercase hex digits per byte value, {@code [b * 2]} and
+     * {@code [b * 2 + 1]}
+     */
+    static final byte[] HEX_PAIRS = new byte[512];
+
+    /**
+     * Decimal forms of 0-255 followed by a {@code ;}, four slots per value
+     * starting at {@code [v << 2]}. Copying {@code DECIMAL_LENGTHS[v]} chars
+     * gives the number, one more gives the number and its separator.
+     */
+    static final char[] DECIMAL_CHARS = new char[1024];
+
+    /**
+     * Same as {@link #DECIMAL_CHARS} as ASCII bytes
+     */
+    static final byte[] DECIMAL_BYTES = new byte[1024];
+
+    static final byte[] DECIMAL_LENGTHS = new byte[256];
+
+    static
+    {
+        int[] base = { 0x000000, 0xCD0000, 0x00CD00, 0xCDCD00, 0x0000EE, 0xCD00CD, 0x00CDCD, 0xE5E5E5, 0x7F7F7F,
+                0xFF0000, 0x00FF00, 0xFFFF00, 0x5C5CFF, 0xFF00FF, 0x00FFFF, 0xFFFFFF };
+        int[] cube = { 0, 95, 135, 175, 215, 255 };
+        System.arraycopy(base, 0, PALETTE_RGB, 0, 16);
+        for (int i = 16; i < 232; i++)
+        {
+            int c = i - 16;
+            PALETTE_RGB[i] = cube[c / 36] << 16 | cube[c / 6 % 6] << 8 | cube[c % 6];
+        }
+        for (int i = 232; i < 256; i++)
+        {
+            int v = 8 + (i - 232) * 10;
+            PALETTE_RGB[i] = v << 16 | v << 8 | v;
+        }
+        String digits = "0123456789abcdef";
+        for (int i = 0; i < 256; i++)
+        {
+            HEX_PAIRS[i << 1] = (byte) digits.charAt(i >>> 4);
+            HEX_PAIRS[(i << 1) + 1] = (byte) digits.charAt(i & 0xF);
+            String d = Integer.toString(i);
+            for (int j = 0; j < d.length(); j++)
+            {
+                DECIMAL_CHARS[(i << 2) + j] = d.charAt(j);
+                DECIMAL_BYTES[(i << 2) + j] = (byte) d.charAt(j);
+            }
+            DECIMAL_CHARS[(i << 2) + d.length()] = ';';
+            DECIMAL_BYTES[(i << 2) + d.length()] = ';';
+            DECIMAL_LENGTHS[i] = (byte) d.length();
+        }
+    }
+}